@@ -0,0 +1,57 @@
+package org.acme.benchmark;
+
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+/**
+ * Chat messages shaped like the ones the bot receives: mostly plain text, product links from
+ * several marketplaces with tracking parameters, short links, and links to other sites.
+ */
+public final class Corpus {
+
+    public static final List<String> MESSAGES =
+            List.of(
+                    "hola!! mira este labial https://www.amazon.es/dp/B08L5TNJHG?ref=ppx_yo2ov_dt_b_product_details&th=1",
+                    "https://a.co/d/8xYz3Ab",
+                    "Check these out 😍 https://www.amazon.com/Maybelline-Sky-High-Mascara-Black/dp/B08H2H2VSQ/ref=sr_1_3?crid=2ZJ1K&keywords=mascara&qid=1699&sr=8-3 and https://amzn.to/3QbXyZa",
+                    "nada de amazon hoy, solo https://www.instagram.com/p/Cx1abcDEF/ y https://youtu.be/dQw4w9WgXcQ",
+                    "buenos días ☀️ hoy os traigo rutina de noche",
+                    "https://www.amazon.co.uk/gp/product/B07PXGQC1Q/ref=ppx_yo_dt_b_asin_title_o00_s00?ie=UTF8&psc=1",
+                    "precio mínimo histórico!!! https://www.amazon.com.mx/-/es/dp/B09V3KXJPB?tag=someoneelse-21&smid=A1AM78C64UM0Y8 corred",
+                    "https://www.amazon.de/s?k=hyaluronsäure+serum&crid=3K2&sprefix=hyal",
+                    "1) https://www.amazon.fr/dp/B0BTJ3Z6VL 2) https://www.amazon.it/dp/B0C1KQ5M3T 3) https://www.amazon.es/dp/B0CHX1W1XY 4) https://a.co/d/0fGhIjK",
+                    "alguien sabe si esto vale la pena? https://www.sephora.es/p/producto-123.html",
+                    "https://smile.amazon.com/gp/product/B01N5IB20Q/?th=1#customerReviews",
+                    "gracias!!! 🙏🏼 ya lo pedí",
+                    "mirad https://amzn.eu/d/5tYuIoP (está de oferta) y este otro https://www.amazon.com/dp/B0BSHF7WHW/",
+                    "https://www.google.com/search?q=amazon+prime+day+beauty",
+                    "el enlace de ayer: https://www.amazon.es/Garnier-Skin-Active-Micelar/dp/B07DPKM3XF/ref=zg_bs_c_beauty_d_sccl_1/258-123?pd_rd_i=B07DPKM3XF&psc=1");
+
+    private static final Pattern URL = Pattern.compile("https?://\\S+");
+
+    /** Every link in {@link #MESSAGES}. */
+    public static final List<String> URLS =
+            MESSAGES.stream()
+                    .flatMap(message -> URL.matcher(message).results())
+                    .map(MatchResult::group)
+                    .toList();
+
+    /** The links that point straight at an Amazon product page. */
+    public static final List<String> PRODUCT_URLS =
+            URLS.stream().filter(url -> url.contains("/dp/") || url.contains("/gp/")).toList();
+
+    public static String[] messages() {
+        return MESSAGES.toArray(String[]::new);
+    }
+
+    public static String[] urls() {
+        return URLS.toArray(String[]::new);
+    }
+
+    public static String[] productUrls() {
+        return PRODUCT_URLS.toArray(String[]::new);
+    }
+
+    private Corpus() {}
+}
@@ -0,0 +1,56 @@
+package org.acme.service;
+
+import java.util.concurrent.TimeUnit;
+import org.acme.benchmark.Corpus;
+import org.acme.model.AmazonUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Affiliate tag rewriting for every product link of the corpus, per operation. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AffiliateServiceBenchmark {
+
+    AmazonUrl[] productUrls;
+    AffiliateService affiliateService;
+    AffiliateService canonicalAffiliateService;
+
+    @Setup
+    public void setUp() {
+        productUrls =
+                Corpus.PRODUCT_URLS.stream()
+                        .map(AmazonUrlClassifier::parse)
+                        .toArray(AmazonUrl[]::new);
+        affiliateService = new AffiliateService("benchmark-20");
+        canonicalAffiliateService = new AffiliateService("benchmark-20", true);
+    }
+
+    @Benchmark
+    public void addAffiliateTag(Blackhole blackhole) {
+        for (var amazonUrl : productUrls) {
+            blackhole.consume(affiliateService.addAffiliateTag(amazonUrl.url()));
+        }
+    }
+
+    @Benchmark
+    public void addAffiliateTagCanonical(Blackhole blackhole) {
+        for (var amazonUrl : productUrls) {
+            blackhole.consume(
+                    canonicalAffiliateService.addAffiliateTag(
+                            amazonUrl.url(), amazonUrl.domain(), amazonUrl.asin()));
+        }
+    }
+}
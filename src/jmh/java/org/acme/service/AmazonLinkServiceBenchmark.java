@@ -0,0 +1,63 @@
+package org.acme.service;
+
+import java.util.concurrent.TimeUnit;
+import org.acme.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Link type detection and Amazon link processing for every link of the corpus, per operation.
+ * {@code detectLinkType} is now {@link AmazonUrlClassifier#classify(String)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AmazonLinkServiceBenchmark {
+
+    String[] urls;
+    AmazonLinkService amazonLinkService;
+
+    @Setup
+    public void setUp() {
+        urls = Corpus.urls();
+        amazonLinkService =
+                new AmazonLinkService(
+                        url -> "https://www.amazon.com/dp/B08H2H2VSQ",
+                        new AffiliateService("benchmark-20")::addAffiliateTag);
+    }
+
+    @Benchmark
+    public void detectLinkType(Blackhole blackhole) {
+        for (var url : urls) {
+            blackhole.consume(AmazonUrlClassifier.classify(url));
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (var url : urls) {
+            blackhole.consume(AmazonUrlClassifier.parse(url));
+        }
+    }
+
+    @Benchmark
+    public void processAmazonUrl(Blackhole blackhole) {
+        for (var url : urls) {
+            if (amazonLinkService.isAmazonUrl(url)) {
+                blackhole.consume(amazonLinkService.processAmazonUrl(url));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.acme.service;
+
+import java.util.concurrent.TimeUnit;
+import org.acme.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** URL extraction and full message processing over the whole corpus, per operation. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinkProcessorBenchmark {
+
+    String[] messages;
+    LinkProcessor linkProcessor;
+
+    @Setup
+    public void setUp() {
+        messages = Corpus.messages();
+        // Short links resolve instantly so only our own code is measured
+        var amazonLinkService =
+                new AmazonLinkService(
+                        url -> "https://www.amazon.com/dp/B08H2H2VSQ",
+                        new AffiliateService("benchmark-20")::addAffiliateTag);
+        linkProcessor =
+                new LinkProcessor(
+                        amazonLinkService::isAmazonUrl, amazonLinkService::processAmazonUrl);
+    }
+
+    @Benchmark
+    public void extractUrls(Blackhole blackhole) {
+        for (var message : messages) {
+            blackhole.consume(linkProcessor.extractUrls(message));
+        }
+    }
+
+    @Benchmark
+    public void processMessage(Blackhole blackhole) {
+        for (var message : messages) {
+            blackhole.consume(linkProcessor.processMessage(message));
+        }
+    }
+
+    @Benchmark
+    public void formatResponses(Blackhole blackhole) {
+        for (var message : messages) {
+            blackhole.consume(
+                    linkProcessor.formatResponses(linkProcessor.processMessage(message)));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.acme.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.acme.service.AmazonUrlClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Redirect following over HTTP against a local server that answers like Amazon's short link
+ * service: {@code amzn.to} redirects to {@code a.co}, which redirects (relatively, then absolutely)
+ * to the product page. Requests go through a real {@link HttpClient} over loopback, so request
+ * building, the client's connection pool and header parsing are measured, not the network.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpRedirectFollowerBenchmark {
+
+    static final String SHORT_URL = "https://amzn.to/3QbXyZa";
+
+    static final String PRODUCT_URL =
+            "https://www.amazon.com/Maybelline-Sky-High-Mascara-Black/dp/B08H2H2VSQ"
+                    + "?ref_=ast_sto_dp&th=1&psc=1";
+
+    // Location of each redirect by requested URL, anything else is answered with 200
+    static final Map<String, String> REDIRECTS =
+            Map.of(
+                    SHORT_URL, "https://a.co/d/8xYz3Ab",
+                    "https://a.co/d/8xYz3Ab", "/d/8xYz3Ab?redirected=true",
+                    "https://a.co/d/8xYz3Ab?redirected=true", PRODUCT_URL);
+
+    HttpServer server;
+    ExecutorService executor;
+    HttpClient client;
+    HttpRedirectFollower getFollower;
+    HttpRedirectFollower headFollower;
+
+    @Setup
+    public void setUp() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        server.createContext("/", HttpRedirectFollowerBenchmark::handle);
+        server.setExecutor(executor);
+        server.start();
+        client =
+                HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .followRedirects(HttpClient.Redirect.NEVER)
+                        .build();
+
+        Function<HttpRequest, HttpResponse<Void>> localClient =
+                request -> {
+                    try {
+                        return client.send(local(request), HttpResponse.BodyHandlers.discarding());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                };
+        getFollower = new HttpRedirectFollower(localClient);
+        headFollower =
+                new HttpRedirectFollower(
+                        localClient,
+                        HttpRedirectFollower.Mode.HEAD,
+                        AmazonUrlClassifier::isProductUrl);
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        server.stop(0);
+        executor.close();
+    }
+
+    /** Follows every hop, including the request for the product page. */
+    @Benchmark
+    public String followRedirectsGet() {
+        return getFollower.followRedirects(SHORT_URL);
+    }
+
+    /** Stops at the product URL without requesting it. */
+    @Benchmark
+    public String followRedirectsHead() {
+        return headFollower.followRedirects(SHORT_URL);
+    }
+
+    /** Sends {@code https://a.co/d/abc} to {@code http://127.0.0.1:<port>/a.co/d/abc}. */
+    private HttpRequest local(HttpRequest request) {
+        var uri = request.uri();
+        var local =
+                URI.create(
+                        "http://127.0.0.1:"
+                                + server.getAddress().getPort()
+                                + "/"
+                                + uri.getHost()
+                                + uri.getRawPath()
+                                + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery()));
+        return HttpRequest.newBuilder(request, (name, value) -> true).uri(local).build();
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var uri = exchange.getRequestURI();
+            var requested =
+                    "https:/"
+                            + uri.getRawPath()
+                            + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+            var location = REDIRECTS.get(requested);
+            if (location == null) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.getResponseHeaders().add("Location", location);
+            exchange.sendResponseHeaders(requested.equals(SHORT_URL) ? 301 : 302, -1);
+        }
+    }
+}
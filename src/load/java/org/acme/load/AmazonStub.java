@@ -0,0 +1,146 @@
+package org.acme.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the Amazon short-link hosts. Requests are rewritten by {@link
+ * #rewrite(HttpRequest)} from {@code https://a.co/d/abc} to {@code
+ * http://127.0.0.1:<port>/a.co/d/abc}, so the resolver sees the real URLs while every hop is
+ * answered here:
+ *
+ * <ul>
+ *   <li>a short link redirects {@code hops - 1} times through {@code amzn.to}, then to a product
+ *       page whose ASIN is derived from the link, so the same link always resolves the same way
+ *   <li>every request waits {@code latency} and fails with {@code 500} or {@code 429} at the given
+ *       rates. The failures are drawn from a random sequence starting at {@code seed}, so a run
+ *       sees the same sequence of failures as the previous one; which request gets each of them
+ *       still depends on the order the requests arrive in.
+ * </ul>
+ */
+final class AmazonStub implements AutoCloseable {
+
+    record Settings(
+            Duration latency, int hops, double errorRate, double throttleRate, long seed) {}
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Settings settings;
+    private final Random random;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    private AmazonStub(HttpServer server, ExecutorService executor, Settings settings) {
+        this.server = server;
+        this.executor = executor;
+        this.settings = settings;
+        this.random = new Random(settings.seed());
+    }
+
+    static AmazonStub start(Settings settings) throws IOException {
+        var server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1_024);
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        var stub = new AmazonStub(server, executor, settings);
+        server.setExecutor(executor);
+        server.createContext("/", stub::handle);
+        server.start();
+        return stub;
+    }
+
+    /** Sends a request for a real short-link URL to this stub instead. */
+    HttpRequest rewrite(HttpRequest request) {
+        var uri = request.uri();
+        var local =
+                URI.create(
+                        "http://127.0.0.1:"
+                                + server.getAddress().getPort()
+                                + "/"
+                                + uri.getHost()
+                                + uri.getRawPath()
+                                + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery()));
+        return HttpRequest.newBuilder(request, (name, value) -> true).uri(local).build();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            sleep(settings.latency());
+
+            var failure = random.nextDouble();
+            if (failure < settings.errorRate()) {
+                errors.increment();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            if (failure < settings.errorRate() + settings.throttleRate()) {
+                throttled.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Location", next(exchange.getRequestURI()));
+            exchange.sendResponseHeaders(301, -1);
+        }
+    }
+
+    /** {@code /a.co/d/abc} goes to {@code https://amzn.to/abc?hop=1}, ..., then to the product. */
+    private String next(URI local) {
+        var path = local.getPath(); // "/<host>/<path>"
+        var link = path.substring(path.lastIndexOf('/') + 1);
+        var query = local.getQuery();
+        int hop = 0;
+        if (query != null && query.startsWith("hop=")) {
+            hop = Integer.parseInt(query.substring("hop=".length()));
+        }
+        if (hop + 1 < settings.hops()) {
+            return "https://amzn.to/" + link + "?hop=" + (hop + 1);
+        }
+        return "https://www.amazon.com/dp/" + asin(link) + "?ref=stub";
+    }
+
+    private static String asin(String link) {
+        var hash = Integer.toUnsignedString(link.hashCode(), 36).toUpperCase(Locale.ROOT);
+        return ("B0" + hash + "00000000").substring(0, 10);
+    }
+
+    private static void sleep(Duration latency) {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long throttled() {
+        return throttled.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+}
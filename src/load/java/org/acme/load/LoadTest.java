@@ -0,0 +1,237 @@
+package org.acme.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.acme.BotFactory;
+import org.acme.BotFactory.Storefront;
+import org.acme.ConcurrentUpdateConsumer;
+import org.acme.StartupTimer;
+import org.acme.metrics.Metrics;
+import org.acme.service.ResolvedLinkStore;
+import org.acme.util.ResolverTransport;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Replays recorded updates through the bot as it is wired in production, with Telegram and the
+ * Amazon short-link hosts stubbed, and reports throughput, end-to-end latency and GC activity.
+ *
+ * <p>Updates are sent open loop: the {@code n}th one is due at {@code n / rate} seconds, whether
+ * or not the bot kept up. Latency is measured from that due time until the bot's reply was sent,
+ * so time spent waiting for a free slot in the dispatcher counts too. Replies are sent blocking,
+ * Telegram's rate limits would otherwise dominate every run.
+ *
+ * <p>Options, as {@code --name=value}:
+ *
+ * <ul>
+ *   <li>{@code rate} updates per second (200) and {@code updates} to send (10000), the first
+ *       {@code warmup} of them (1000) are not measured
+ *   <li>{@code chats} the updates are spread over (100) and {@code distinct-links} among them
+ *       (1000), which sets the resolution cache hit rate
+ *   <li>{@code latency-millis} of every short-link hop (50), {@code hops} per link (2), {@code
+ *       error-rate} (0.0) and {@code throttle-rate} (0.0) of the hops answered 500 and 429, drawn
+ *       from random numbers starting at {@code seed} (1)
+ *   <li>{@code telegram-latency-millis} of every Bot API call (30)
+ *   <li>{@code max-in-flight} updates (64), {@code link-concurrency} (4) and {@code
+ *       duplicate-window-minutes} (0), as {@code MAX_IN_FLIGHT_UPDATES}, {@code LINK_CONCURRENCY}
+ *       and {@code DUPLICATE_WINDOW_MINUTES}
+ *   <li>{@code corpus}, a file of updates in JSON, one per line; {@code updates.jsonl} by default
+ * </ul>
+ */
+public final class LoadTest {
+
+    private final Map<String, String> options;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String... args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadTest(options).run();
+    }
+
+    private void run() throws Exception {
+        var rate = doubleOption("rate", 200);
+        var updates = intOption("updates", 10_000);
+        var warmup = Math.min(intOption("warmup", 1_000), updates - 1);
+        var distinctLinks = intOption("distinct-links", 1_000);
+        if (distinctLinks < 1 || distinctLinks > 1_000_000) {
+            throw new IllegalArgumentException("distinct-links must be within 1 and 1000000");
+        }
+        var corpusFile = options.get("corpus");
+        var corpus =
+                UpdateCorpus.load(
+                        corpusFile == null ? null : Path.of(corpusFile),
+                        intOption("chats", 100),
+                        distinctLinks);
+        var stubSettings =
+                new AmazonStub.Settings(
+                        Duration.ofMillis(intOption("latency-millis", 50)),
+                        intOption("hops", 2),
+                        doubleOption("error-rate", 0),
+                        doubleOption("throttle-rate", 0),
+                        Long.parseLong(options.getOrDefault("seed", "1")));
+        var telegram =
+                new RecordingTelegramClient(
+                        Duration.ofMillis(intOption("telegram-latency-millis", 30)));
+
+        // Wired as in production otherwise; the stub only speaks HTTP/1.1 without TLS
+        var settings = new HashMap<String, String>();
+        settings.put("SEND_MODE", "blocking");
+        settings.put("RESOLVER_HTTP_VERSION", "HTTP_1_1");
+        settings.put("LINK_CONCURRENCY", options.getOrDefault("link-concurrency", "4"));
+        settings.put(
+                "DUPLICATE_WINDOW_MINUTES", options.getOrDefault("duplicate-window-minutes", "0"));
+        var factory = new BotFactory(settings::get, new Metrics());
+        var resolverSettings = factory.resolverSettings();
+        ResolverTransport.configureJdk(resolverSettings);
+
+        try (var stub = AmazonStub.start(stubSettings);
+                var transport = new ResolverTransport(resolverSettings)) {
+            // The breaker sees the real hosts, only the transport talks to the stub
+            var resolver = factory.resolver(request -> transport.sendAsync(stub.rewrite(request)));
+            var bot =
+                    factory.storefrontBot(
+                            new Storefront(1, "load", "load-20"),
+                            telegram.client(),
+                            resolver,
+                            ResolvedLinkStore.NONE,
+                            StartupTimer.sinceProcessStart(),
+                            true);
+
+            var dueNanos = new long[updates];
+            var latencyNanos = new long[updates];
+            var done = new CountDownLatch(updates);
+            Consumer<Update> handleUpdate = bot.handleUpdate();
+            Consumer<Update> measured =
+                    update -> {
+                        try {
+                            handleUpdate.accept(update);
+                        } finally {
+                            int number = update.getUpdateId() - 1;
+                            latencyNanos[number] = System.nanoTime() - dueNanos[number];
+                            done.countDown();
+                        }
+                    };
+
+            System.out.printf(
+                    "Replaying %d updates (%d recorded) at %.0f/s, %d of them to warm up%n",
+                    updates, corpus.size(), rate, warmup);
+            var gcBefore = gcTotals();
+            long start;
+            long end;
+            try (var dispatcher =
+                    new ConcurrentUpdateConsumer(measured, intOption("max-in-flight", 64))) {
+                long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+                start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+                for (int number = 0; number < updates; number++) {
+                    var update = corpus.update(number);
+                    dueNanos[number] = start + number * periodNanos;
+                    for (long wait; (wait = dueNanos[number] - System.nanoTime()) > 0; ) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    dispatcher.dispatch(update);
+                }
+                done.await();
+                end = System.nanoTime();
+            }
+            var gcAfter = gcTotals();
+
+            var measuredNanos = Arrays.copyOfRange(latencyNanos, warmup, updates);
+            Arrays.sort(measuredNanos);
+            var seconds = (end - dueNanos[warmup]) / 1e9;
+            System.out.printf(
+                    "Throughput   %.1f updates/s (%d in %.1fs)%n",
+                    measuredNanos.length / seconds, measuredNanos.length, seconds);
+            System.out.printf(
+                    "Latency      p50 %s  p99 %s  p999 %s  max %s%n",
+                    millis(percentile(measuredNanos, 0.50)),
+                    millis(percentile(measuredNanos, 0.99)),
+                    millis(percentile(measuredNanos, 0.999)),
+                    millis(measuredNanos[measuredNanos.length - 1]));
+            System.out.printf(
+                    "Telegram     %d messages, %d chars, %d other calls%n",
+                    telegram.messages(), telegram.messageChars(), telegram.otherCalls());
+            System.out.printf(
+                    "Short links  %d requests, %d errors, %d throttled; cache %d hits, %d misses,"
+                            + " %d coalesced%n",
+                    stub.requests(),
+                    stub.errors(),
+                    stub.throttled(),
+                    resolver.resolutionCache().hits(),
+                    resolver.resolutionCache().misses(),
+                    resolver.coalescingFollower().coalesced());
+            System.out.printf(
+                    "Resolver     %d rejected (circuit open), %d rejected (concurrency limit)%n",
+                    resolver.circuitBreaker().rejectedOpen(),
+                    resolver.circuitBreaker().rejectedLimit());
+            printMemory(gcBefore, gcAfter);
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1fms", nanos / 1e6);
+    }
+
+    /** Collections and milliseconds spent collecting, summed over all collectors. */
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[] {count, millis};
+    }
+
+    private static void printMemory(long[] gcBefore, long[] gcAfter) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        System.out.printf(
+                "GC           %d collections, %dms total (%s)%n",
+                gcAfter[0] - gcBefore[0],
+                gcAfter[1] - gcBefore[1],
+                String.join(
+                        ", ",
+                        ManagementFactory.getGarbageCollectorMXBeans().stream()
+                                .map(GarbageCollectorMXBean::getName)
+                                .toList()));
+        System.out.printf(
+                "Heap         %dMB used, %dMB committed, %dMB max, %dMB peak of all pools%n",
+                heap.getUsed() >> 20, heap.getCommitted() >> 20, heap.getMax() >> 20, peak >> 20);
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(name, Integer.toString(defaultValue)));
+    }
+
+    private double doubleOption(String name, double defaultValue) {
+        return Double.parseDouble(options.getOrDefault(name, Double.toString(defaultValue)));
+    }
+}
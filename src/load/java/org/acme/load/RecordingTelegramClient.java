@@ -0,0 +1,75 @@
+package org.acme.load;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+/**
+ * Stands in for the Telegram Bot API: every call takes {@code latency}, succeeds, and is counted.
+ * Nothing is kept but the counts, so long runs do not fill the heap with replies.
+ */
+final class RecordingTelegramClient {
+
+    private final Duration latency;
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder messageChars = new LongAdder();
+    private final LongAdder otherCalls = new LongAdder();
+    private final TelegramClient client;
+
+    RecordingTelegramClient(Duration latency) {
+        this.latency = latency;
+        this.client =
+                (TelegramClient)
+                        Proxy.newProxyInstance(
+                                TelegramClient.class.getClassLoader(),
+                                new Class<?>[] {TelegramClient.class},
+                                (proxy, method, args) ->
+                                        switch (method.getName()) {
+                                            case "execute" -> record(args[0]);
+                                            case "executeAsync" ->
+                                                    CompletableFuture.completedFuture(
+                                                            record(args[0]));
+                                            case "toString" -> "RecordingTelegramClient";
+                                            case "hashCode" -> System.identityHashCode(proxy);
+                                            case "equals" -> proxy == args[0];
+                                            default ->
+                                                    throw new UnsupportedOperationException(
+                                                            method.getName());
+                                        });
+    }
+
+    TelegramClient client() {
+        return client;
+    }
+
+    private Object record(Object method) throws InterruptedException {
+        if (!latency.isZero()) {
+            Thread.sleep(latency);
+        }
+        if (method instanceof SendMessage sendMessage) {
+            messages.increment();
+            messageChars.add(sendMessage.getText().length());
+        } else {
+            otherCalls.increment();
+        }
+        return null;
+    }
+
+    /** Messages sent to chats. */
+    long messages() {
+        return messages.sum();
+    }
+
+    /** Characters of all messages sent, to spot changes in the replies between runs. */
+    long messageChars() {
+        return messageChars.sum();
+    }
+
+    /** Any other Bot API call, e.g. answers to inline queries. */
+    long otherCalls() {
+        return otherCalls.sum();
+    }
+}
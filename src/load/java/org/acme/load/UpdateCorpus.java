@@ -0,0 +1,94 @@
+package org.acme.load;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Recorded updates, one JSON object per line, replayed as many updates as needed. Each replay gets
+ * its own update id, a chat out of {@code chats}, and a link number out of {@code distinctLinks}:
+ * every {@value #PLACEHOLDER} in the text and the entity URLs is replaced by that number, padded
+ * to the same width so the entity offsets stay valid.
+ */
+final class UpdateCorpus {
+
+    static final String PLACEHOLDER = "000000";
+
+    // Telegram adds fields to Update over time, recordings of newer ones must still load
+    private static final ObjectMapper OBJECT_MAPPER =
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final List<ObjectNode> templates;
+    private final int chats;
+    private final int distinctLinks;
+
+    private UpdateCorpus(List<ObjectNode> templates, int chats, int distinctLinks) {
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("The corpus has no updates");
+        }
+        this.templates = templates;
+        this.chats = chats;
+        this.distinctLinks = distinctLinks;
+    }
+
+    /** The corpus at {@code file}, or the bundled {@code updates.jsonl} when it is {@code null}. */
+    static UpdateCorpus load(Path file, int chats, int distinctLinks) throws IOException {
+        try (var reader =
+                file != null
+                        ? Files.newBufferedReader(file, StandardCharsets.UTF_8)
+                        : new BufferedReader(
+                                new InputStreamReader(
+                                        UpdateCorpus.class.getResourceAsStream("/updates.jsonl"),
+                                        StandardCharsets.UTF_8))) {
+            var templates = new ArrayList<ObjectNode>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    templates.add((ObjectNode) OBJECT_MAPPER.readTree(line));
+                }
+            }
+            return new UpdateCorpus(templates, chats, distinctLinks);
+        }
+    }
+
+    int size() {
+        return templates.size();
+    }
+
+    /** The {@code number}th update of the replay, cycling through the recorded ones. */
+    Update update(int number) {
+        var json = templates.get(number % templates.size()).deepCopy();
+        json.put("update_id", number + 1);
+        var link = String.format("%0" + PLACEHOLDER.length() + "d", number % distinctLinks);
+        if (json.get("message") instanceof ObjectNode message) {
+            long chatId = -1_000_000L - number % chats;
+            message.put("message_id", number + 1);
+            ((ObjectNode) message.get("chat")).put("id", chatId);
+            ((ObjectNode) message.get("from")).put("id", number % chats + 1);
+            if (message.hasNonNull("text")) {
+                message.put("text", message.get("text").asText().replace(PLACEHOLDER, link));
+            }
+            for (var entity : message.path("entities")) {
+                if (entity.hasNonNull("url")) {
+                    ((ObjectNode) entity)
+                            .put("url", entity.get("url").asText().replace(PLACEHOLDER, link));
+                }
+            }
+        }
+        try {
+            return OBJECT_MAPPER.treeToValue(json, Update.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
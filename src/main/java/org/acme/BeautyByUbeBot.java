@@ -1,26 +1,55 @@
 package org.acme;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import org.acme.metrics.Metrics;
+import org.acme.metrics.Stage;
 import org.acme.model.ProcessedLink;
+import org.acme.service.RecentLinks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
 
 public record BeautyByUbeBot(
-        TelegramClient client,
-        Function<String, List<ProcessedLink>> processMessage,
-        Function<List<ProcessedLink>, List<String>> formatResponses)
+        Consumer<SendMessage> sender,
+        Function<List<String>, List<ProcessedLink>> processUrls,
+        Function<List<ProcessedLink>, List<String>> formatResponses,
+        RecentLinks recentLinks,
+        Consumer<InlineQuery> inlineQueries,
+        Metrics metrics)
         implements LongPollingSingleThreadUpdateConsumer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BeautyByUbeBot.class);
 
+    public BeautyByUbeBot(
+            Consumer<SendMessage> sender,
+            Function<List<String>, List<ProcessedLink>> processUrls,
+            Function<List<ProcessedLink>, List<String>> formatResponses) {
+        this(
+                sender,
+                processUrls,
+                formatResponses,
+                RecentLinks.NONE,
+                inlineQuery -> {},
+                new Metrics());
+    }
+
     @Override
     public void consume(Update update) {
+        metrics.updateConsumed();
+        if (update.hasInlineQuery()) {
+            inlineQueries.accept(update.getInlineQuery());
+            return;
+        }
         var message = update.getMessage();
         if (update.hasMessage() && message.hasText()) {
             var messageText = message.getText();
@@ -40,8 +69,23 @@ public record BeautyByUbeBot(
                 return;
             }
 
-            // Process the message for Amazon links
-            var processedLinks = processMessage.apply(messageText);
+            // Links answered in this chat a moment ago get the same answer without processing
+            long start = System.nanoTime();
+            var extractedUrls = MessageUrls.of(message);
+            metrics.recordLatency(Stage.EXTRACT, start);
+            var recentAnswers = new HashMap<String, ProcessedLink>();
+            var urls = new ArrayList<String>();
+            for (var url : new LinkedHashSet<>(extractedUrls)) {
+                var recentAnswer = recentLinks.recentAnswer(message.getChatId(), url);
+                if (recentAnswer != null) {
+                    recentAnswers.put(url, recentAnswer);
+                } else {
+                    urls.add(url);
+                }
+            }
+            var processed = urls.isEmpty() ? List.<ProcessedLink>of() : processUrls.apply(urls);
+            remember(message.getChatId(), processed);
+            var processedLinks = inMessageOrder(extractedUrls, recentAnswers, processed);
 
             if (!processedLinks.isEmpty()) {
                 // Send responses for each successfully processed link
@@ -58,14 +102,46 @@ public record BeautyByUbeBot(
         }
     }
 
-    private void sendResponse(String chatId, String responseText) {
-        var sendMessage = SendMessage.builder().chatId(chatId).text(responseText).build();
+    /** Remembers the answers of the links processed, by URL and by product. */
+    private void remember(long chatId, List<ProcessedLink> processedLinks) {
+        for (var processed : processedLinks) {
+            if (processed.processed()) { // Failed links are tried again next time
+                recentLinks.answer(chatId, processed.originalUrl(), processed);
+                recentLinks.answer(chatId, processed.productKey(), processed);
+            }
+        }
+    }
 
-        try {
-            client.execute(sendMessage);
-            LOGGER.debug("Response sent to chat {}: {}", chatId, responseText);
-        } catch (TelegramApiException e) {
-            LOGGER.error("Failed to send response to chat {}: {}", chatId, responseText, e);
+    /**
+     * Puts answers from the window and fresh ones in the order of their URLs in the message, each
+     * product once.
+     */
+    private static List<ProcessedLink> inMessageOrder(
+            List<String> urls,
+            Map<String, ProcessedLink> recentAnswers,
+            List<ProcessedLink> processedLinks) {
+        if (recentAnswers.isEmpty()) {
+            return processedLinks;
+        }
+        var processedByUrl = new HashMap<String, ProcessedLink>();
+        for (var processed : processedLinks) {
+            processedByUrl.putIfAbsent(processed.originalUrl(), processed);
+        }
+        var products = new HashSet<String>();
+        var inOrder = new ArrayList<ProcessedLink>(urls.size());
+        for (var url : urls) {
+            var answer = recentAnswers.get(url);
+            if (answer == null) {
+                answer = processedByUrl.get(url);
+            }
+            if (answer != null && products.add(answer.productKey())) {
+                inOrder.add(answer);
+            }
         }
+        return inOrder;
+    }
+
+    private void sendResponse(String chatId, String responseText) {
+        sender.accept(SendMessage.builder().chatId(chatId).text(responseText).build());
     }
 }
@@ -0,0 +1,29 @@
+package org.acme;
+
+import org.acme.metrics.Metrics;
+import org.acme.metrics.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+/** Sends each message synchronously on the calling thread; failures are only logged. */
+public record BlockingSender(TelegramClient client, Metrics metrics) {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockingSender.class);
+
+    public void send(SendMessage sendMessage) {
+        var chatId = sendMessage.getChatId();
+        long start = System.nanoTime();
+        try {
+            client.execute(sendMessage);
+            metrics.recordLatency(Stage.SEND, start);
+            LOGGER.debug("Response sent to chat {}: {}", chatId, sendMessage.getText());
+        } catch (TelegramApiException e) {
+            metrics.sendError();
+            LOGGER.error(
+                    "Failed to send response to chat {}: {}", chatId, sendMessage.getText(), e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package org.acme;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.acme.metrics.Metrics;
+import org.acme.model.ProcessedLink;
+import org.acme.service.AffiliateService;
+import org.acme.service.AmazonLinkService;
+import org.acme.service.AmazonUrlClassifier;
+import org.acme.service.LinkProcessor;
+import org.acme.service.ParallelLinkProcessor;
+import org.acme.service.RecentLinks;
+import org.acme.service.ResolvedLinkStore;
+import org.acme.service.ResponseBatcher;
+import org.acme.util.AsyncHttpRedirectFollower;
+import org.acme.util.CachingRedirectFollower;
+import org.acme.util.CoalescingRedirectFollower;
+import org.acme.util.HostCircuitBreaker;
+import org.acme.util.HttpRedirectFollower;
+import org.acme.util.ResolverTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+/**
+ * Wires the link resolver and the bots from settings looked up by name, the environment for
+ * {@link Main}. The load test builds its bot here too, so it measures the production wiring and
+ * only replaces Telegram and the short-link hosts.
+ */
+public final class BotFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BotFactory.class);
+
+    /**
+     * A bot and the affiliate tag of its links: {@code BOT_TOKEN} and {@code AFFILIATE_TAG} for the
+     * first, {@code BOT_TOKEN_2} and {@code AFFILIATE_TAG_2} for the second and so on.
+     */
+    public record Storefront(int number, String token, String affiliateTag) {
+
+        /** Appended to the webhook path and the update id file of all but the first bot. */
+        public String suffix(String separator) {
+            return number == 1 ? "" : separator + number;
+        }
+    }
+
+    /** What each bot has on its own; link resolution is shared by all of them. */
+    public record StorefrontBot(
+            Storefront storefront,
+            TelegramClient client,
+            Consumer<Update> handleUpdate,
+            TelegramSendQueue sendQueue,
+            RecentLinks recentLinks,
+            UpdateReplayFilter replayFilter,
+            InlineQueryHandler inlineQueries) {}
+
+    /** The link resolution all bots share, from the circuit breaker up to the cache. */
+    public record Resolver(
+            HostCircuitBreaker circuitBreaker,
+            CoalescingRedirectFollower coalescingFollower,
+            CachingRedirectFollower resolutionCache) {
+
+        public CompletableFuture<String> followRedirects(String url) {
+            return resolutionCache.followRedirects(url);
+        }
+
+        public boolean isCached(String url) {
+            return resolutionCache.peek(url) != null;
+        }
+    }
+
+    private final Function<String, String> settings;
+    private final Metrics metrics;
+
+    /** {@code settings} returns the value of a setting, {@code null} for the default. */
+    public BotFactory(Function<String, String> settings, Metrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    public static BotFactory fromEnvironment(Metrics metrics) {
+        return new BotFactory(System::getenv, metrics);
+    }
+
+    /** Every configured bot, failing when a token has no affiliate tag. */
+    public List<Storefront> storefronts() {
+        var storefronts = new ArrayList<Storefront>();
+        var botToken = setting("BOT_TOKEN", "");
+        if (botToken.isEmpty()) {
+            throw new IllegalStateException("BOT_TOKEN is required");
+        }
+        var defaultTag = setting("AFFILIATE_TAG", "");
+        if (defaultTag.isEmpty()) {
+            throw new IllegalStateException("AFFILIATE_TAG is required with BOT_TOKEN");
+        }
+        storefronts.add(new Storefront(1, botToken, defaultTag));
+        for (int number = 2; !setting("BOT_TOKEN_" + number, "").isEmpty(); number++) {
+            var affiliateTag = setting("AFFILIATE_TAG_" + number, "");
+            if (affiliateTag.isEmpty()) {
+                throw new IllegalStateException(
+                        "AFFILIATE_TAG_" + number + " is required with BOT_TOKEN_" + number);
+            }
+            storefronts.add(
+                    new Storefront(number, setting("BOT_TOKEN_" + number, ""), affiliateTag));
+        }
+        return storefronts;
+    }
+
+    public ResolverTransport.Settings resolverSettings() {
+        var defaults = ResolverTransport.Settings.DEFAULT;
+        var dnsCacheSeconds = setting("RESOLVER_DNS_CACHE_SECONDS", "");
+        var warmUpHosts =
+                setting("RESOLVER_WARMUP_HOSTS", String.join(",", defaults.warmUpHosts()));
+        return new ResolverTransport.Settings(
+                HttpClient.Version.valueOf(
+                        setting("RESOLVER_HTTP_VERSION", defaults.version().name()).toUpperCase()),
+                defaults.connectTimeout(),
+                Duration.ofSeconds(
+                        intSetting(
+                                "RESOLVER_KEEPALIVE_SECONDS",
+                                (int) defaults.keepAlive().toSeconds())),
+                intSetting("RESOLVER_CONNECTION_POOL_SIZE", defaults.connectionPoolSize()),
+                dnsCacheSeconds.isEmpty()
+                        ? defaults.dnsCacheTtl()
+                        : Duration.ofSeconds(Integer.parseInt(dnsCacheSeconds)),
+                Arrays.stream(warmUpHosts.split(","))
+                        .map(String::trim)
+                        .filter(host -> !host.isEmpty())
+                        .toList());
+    }
+
+    /** The shared resolver, sending its requests with {@code sendAsync}. */
+    public Resolver resolver(
+            Function<HttpRequest, CompletableFuture<HttpResponse<Void>>> sendAsync) {
+        var circuitBreaker =
+                new HostCircuitBreaker(
+                        sendAsync,
+                        new HostCircuitBreaker.Settings(
+                                intSetting("RESOLVER_INITIAL_CONCURRENCY", 16),
+                                intSetting("RESOLVER_MAX_CONCURRENCY", 64),
+                                Duration.ofMillis(intSetting("RESOLVER_SLOW_MILLIS", 2_000)),
+                                intSetting("RESOLVER_FAILURE_THRESHOLD", 5),
+                                Duration.ofSeconds(intSetting("RESOLVER_OPEN_SECONDS", 30))));
+        var asyncFollower =
+                new AsyncHttpRedirectFollower(
+                        circuitBreaker::sendAsync,
+                        HttpRedirectFollower.Mode.valueOf(
+                                setting("REDIRECT_MODE", "head").toUpperCase()),
+                        AmazonUrlClassifier::isProductUrl,
+                        Duration.ofSeconds(intSetting("RESOLUTION_DEADLINE_SECONDS", 15)),
+                        metrics);
+        var coalescingFollower =
+                new CoalescingRedirectFollower(
+                        asyncFollower::followRedirects,
+                        Duration.ofSeconds(intSetting("RESOLUTION_MAX_WAIT_SECONDS", 30)));
+        var resolutionCache =
+                new CachingRedirectFollower(
+                        coalescingFollower::followRedirects,
+                        AmazonUrlClassifier::isProductUrl,
+                        intSetting("RESOLUTION_CACHE_SIZE", 10_000),
+                        Duration.ofMinutes(intSetting("RESOLUTION_CACHE_TTL_MINUTES", 1440)),
+                        Duration.ofSeconds(intSetting("RESOLUTION_FAILURE_TTL_SECONDS", 60)));
+        return new Resolver(circuitBreaker, coalescingFollower, resolutionCache);
+    }
+
+    /**
+     * Builds one bot on top of the shared resolver and store. Without {@code sendReplies} replies
+     * are only logged, for training runs.
+     */
+    public StorefrontBot storefrontBot(
+            Storefront storefront,
+            TelegramClient client,
+            Resolver resolver,
+            ResolvedLinkStore resolvedLinks,
+            StartupTimer timer,
+            boolean sendReplies) {
+        var amazonLinkService =
+                new AmazonLinkService(
+                        url -> resolver.followRedirects(url).join(),
+                        new AffiliateService(
+                                        storefront.affiliateTag(),
+                                        Boolean.parseBoolean(setting("CANONICAL_LINKS", "false")))
+                                ::addAffiliateTag,
+                        resolver::followRedirects,
+                        resolvedLinks,
+                        metrics);
+        var linkProcessor =
+                new LinkProcessor(
+                        amazonLinkService::isAmazonUrl,
+                        amazonLinkService::processAmazonUrl,
+                        amazonLinkService::processAmazonUrlAsync,
+                        metrics);
+        var linkConcurrency = intSetting("LINK_CONCURRENCY", 4);
+        Function<List<String>, List<ProcessedLink>> processUrls =
+                linkConcurrency > 1
+                        ? new ParallelLinkProcessor(
+                                        linkProcessor,
+                                        linkConcurrency,
+                                        Duration.ofSeconds(
+                                                intSetting("MESSAGE_TIMEOUT_SECONDS", 20)))
+                                ::processUrls
+                        : linkProcessor::processUrls;
+        Function<List<ProcessedLink>, List<String>> formatResponses =
+                linkProcessor::formatResponses;
+        if (Boolean.parseBoolean(setting("BATCH_RESPONSES", "true"))) {
+            formatResponses = formatResponses.andThen(new ResponseBatcher()::batch);
+        }
+
+        // Telegram's rate limits apply per bot, so each one has its own queue
+        Consumer<SendMessage> sender;
+        TelegramSendQueue sendQueue = null;
+        if (!sendReplies) {
+            sender = sendMessage -> LOGGER.debug("Reply not sent: {}", sendMessage.getText());
+        } else if ("blocking".equalsIgnoreCase(setting("SEND_MODE", "queue"))) {
+            sender = new BlockingSender(client, metrics)::send;
+        } else {
+            sendQueue =
+                    new TelegramSendQueue(
+                            client,
+                            intSetting("SEND_QUEUE_CAPACITY", 1_000),
+                            TelegramSendQueue.OverflowPolicy.valueOf(
+                                    setting("SEND_OVERFLOW", "drop_oldest").toUpperCase()),
+                            new TelegramSendQueue.RateLimits(
+                                    intSetting("TELEGRAM_GLOBAL_RATE", 30),
+                                    intSetting("TELEGRAM_CHAT_RATE", 1),
+                                    intSetting("TELEGRAM_GROUP_RATE_PER_MINUTE", 20)),
+                            metrics);
+            Runtime.getRuntime().addShutdownHook(new Thread(sendQueue::close));
+            sender = sendQueue::send;
+        }
+
+        var duplicateWindow = Duration.ofMinutes(intSetting("DUPLICATE_WINDOW_MINUTES", 10));
+        var recentLinks =
+                duplicateWindow.isZero()
+                        ? RecentLinks.NONE
+                        : new RecentLinks(
+                                intSetting("DUPLICATE_WINDOW_SIZE", 10_000), duplicateWindow);
+        // Every bot counts its own update ids
+        var updateIdFile = setting("UPDATE_ID_FILE", "");
+        var replayFilter =
+                updateIdFile.isEmpty()
+                        ? UpdateReplayFilter.inMemory()
+                        : UpdateReplayFilter.open(Path.of(updateIdFile + storefront.suffix("-")));
+        Runtime.getRuntime().addShutdownHook(new Thread(replayFilter::close));
+        var inlineQueries =
+                new InlineQueryHandler(
+                        client,
+                        amazonLinkService::processAmazonUrl,
+                        resolver::isCached,
+                        linkProcessor::formatResponses,
+                        Duration.ofMillis(intSetting("INLINE_DEBOUNCE_MILLIS", 400)),
+                        Duration.ofSeconds(intSetting("INLINE_CACHE_SECONDS", 300)));
+        var bot =
+                new BeautyByUbeBot(
+                        sender,
+                        processUrls,
+                        formatResponses,
+                        recentLinks,
+                        inlineQueries::handle,
+                        metrics);
+        return new StorefrontBot(
+                storefront,
+                client,
+                timer.timeFirstUpdate(replayFilter.filter(bot::consume)),
+                sendQueue,
+                recentLinks,
+                replayFilter,
+                inlineQueries);
+    }
+
+    /** The trimmed value of setting {@code name}, {@code defaultValue} when unset or blank. */
+    public String setting(String name, String defaultValue) {
+        var value = settings.apply(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public int intSetting(String name, int defaultValue) {
+        return Integer.parseInt(setting(name, Integer.toString(defaultValue)));
+    }
+}
@@ -0,0 +1,189 @@
+package org.acme;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.acme.model.LinkType;
+import org.acme.model.ProcessedLink;
+import org.acme.service.AmazonUrlClassifier;
+import org.acme.service.UrlScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts the links of a whole file without going through Telegram: every link found in the
+ * input gets a row with its affiliate link, ASIN, domain and type, in input order.
+ *
+ * <p>At most {@code parallelism} links are resolved at a time. Rows are written as soon as the
+ * oldest pending link is done, so memory does not grow with the input, and a slow link holds back
+ * the output of the ones after it but not their resolution.
+ */
+public final class BulkConverter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkConverter.class);
+
+    public enum Format {
+        CSV,
+        JSONL
+    }
+
+    /** Lines read, links found in them and links converted to an affiliate link. */
+    public record Summary(long lines, long links, long converted) {}
+
+    /** One output row; {@code line} is the 1-based input line the link was found on. */
+    record Row(
+            long line,
+            String originalUrl,
+            LinkType type,
+            boolean processed,
+            String asin,
+            String domain,
+            String finalUrl,
+            String affiliateUrl) {
+
+        static Row of(long line, ProcessedLink link) {
+            return new Row(
+                    line,
+                    link.originalUrl(),
+                    link.type(),
+                    link.processed(),
+                    link.asin(),
+                    link.domain(),
+                    link.finalUrl(),
+                    link.affiliateUrl());
+        }
+
+        /** In the order of {@link #COLUMNS}. */
+        List<Object> values() {
+            return Arrays.asList(
+                    line, originalUrl, type, processed, asin, domain, finalUrl, affiliateUrl);
+        }
+    }
+
+    static final List<String> COLUMNS =
+            List.of(
+                    "line",
+                    "originalUrl",
+                    "type",
+                    "processed",
+                    "asin",
+                    "domain",
+                    "finalUrl",
+                    "affiliateUrl");
+
+    private record Pending(long line, CompletableFuture<ProcessedLink> result) {}
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Predicate<String> isAmazonUrl;
+    private final Function<String, CompletableFuture<ProcessedLink>> processAmazonUrlAsync;
+    private final int parallelism;
+
+    public BulkConverter(
+            Predicate<String> isAmazonUrl,
+            Function<String, CompletableFuture<ProcessedLink>> processAmazonUrlAsync,
+            int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.isAmazonUrl = isAmazonUrl;
+        this.processAmazonUrlAsync = processAmazonUrlAsync;
+        this.parallelism = parallelism;
+    }
+
+    public Summary convert(BufferedReader input, Writer output, Format format) throws IOException {
+        if (format == Format.CSV) {
+            output.write(String.join(",", COLUMNS));
+            output.write('\n');
+        }
+        var window = new ArrayDeque<Pending>(parallelism);
+        long lines = 0;
+        long links = 0;
+        long converted = 0;
+        String line;
+        while ((line = input.readLine()) != null) {
+            lines++;
+            for (var url : urls(line)) {
+                if (window.size() == parallelism) {
+                    converted += write(window.removeFirst(), output, format);
+                }
+                window.addLast(new Pending(lines, process(url)));
+                links++;
+            }
+        }
+        while (!window.isEmpty()) {
+            converted += write(window.removeFirst(), output, format);
+        }
+        output.flush();
+        LOGGER.info("Converted {} of {} links found on {} lines", converted, links, lines);
+        return new Summary(lines, links, converted);
+    }
+
+    /** The links of a line; a spreadsheet cell often holds a bare {@code amazon.es/dp/...}. */
+    static List<String> urls(String line) {
+        var urls = UrlScanner.urls(line);
+        var cell = line.strip();
+        if (urls.isEmpty()
+                && cell.indexOf('.') > 0
+                && cell.chars().noneMatch(Character::isWhitespace)) {
+            return UrlScanner.urls("https://" + cell);
+        }
+        return urls;
+    }
+
+    private CompletableFuture<ProcessedLink> process(String url) {
+        if (!isAmazonUrl.test(url)) {
+            return CompletableFuture.completedFuture(
+                    ProcessedLink.failed(url, LinkType.NON_AMAZON));
+        }
+        return processAmazonUrlAsync
+                .apply(url)
+                .exceptionally(
+                        error -> {
+                            LOGGER.warn("Could not convert {}: {}", url, error.toString());
+                            return ProcessedLink.failed(url, AmazonUrlClassifier.classify(url));
+                        });
+    }
+
+    /** Waits for the oldest link and writes its row, returning 1 when it was converted. */
+    private int write(Pending pending, Writer output, Format format) throws IOException {
+        var row = Row.of(pending.line(), pending.result().join());
+        switch (format) {
+            case CSV ->
+                    output.write(
+                            row.values().stream()
+                                    .map(BulkConverter::csvField)
+                                    .collect(Collectors.joining(",")));
+            case JSONL -> {
+                var fields = new LinkedHashMap<String, Object>();
+                var values = row.values();
+                for (int i = 0; i < COLUMNS.size(); i++) {
+                    fields.put(COLUMNS.get(i), values.get(i));
+                }
+                output.write(objectMapper.writeValueAsString(fields));
+            }
+        }
+        output.write('\n');
+        return row.processed() ? 1 : 0;
+    }
+
+    /** RFC 4180: fields with a separator, quote or line break are quoted, quotes doubled. */
+    static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        var text = value.toString();
+        if (text.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,116 @@
+package org.acme;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Dispatches every update on its own virtual thread so that a slow short-link resolution in one
+ * chat does not hold back the others. Updates belonging to the same chat are chained and therefore
+ * still handled in the order Telegram delivered them.
+ *
+ * <p>At most {@code maxInFlight} updates are queued or running at any time; once the cap is
+ * reached the polling thread blocks, which in turn pauses fetching new updates. {@link #close()}
+ * waits for every update dispatched so far, their offset was already confirmed to Telegram.
+ */
+public final class ConcurrentUpdateConsumer implements LongPollingUpdateConsumer, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentUpdateConsumer.class);
+
+    private final Consumer<Update> handler;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentMap<Long, CompletableFuture<Void>> chatTails =
+            new ConcurrentHashMap<>();
+
+    public ConcurrentUpdateConsumer(Consumer<Update> handler, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.handler = handler;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public void consume(List<Update> updates) {
+        for (var update : updates) {
+            dispatch(update);
+        }
+    }
+
+    /** Schedules a single update behind any update of the same chat that is still pending. */
+    public void dispatch(Update update) {
+        inFlight.acquireUninterruptibly();
+
+        var chatId = chatId(update);
+        if (chatId == null) {
+            CompletableFuture.runAsync(() -> handle(update), executor);
+            return;
+        }
+
+        var tail =
+                chatTails.compute(
+                        chatId,
+                        (id, previous) ->
+                                previous == null
+                                        ? CompletableFuture.runAsync(() -> handle(update), executor)
+                                        : previous.thenRunAsync(() -> handle(update), executor));
+
+        // Drop the entry once the chat is idle so the map only holds active chats
+        tail.whenComplete((ignored, error) -> chatTails.remove(chatId, tail));
+    }
+
+    /** Number of chats that currently have updates queued or running. */
+    public int activeChats() {
+        return chatTails.size();
+    }
+
+    private void handle(Update update) {
+        try {
+            handler.accept(update);
+        } catch (Throwable e) {
+            // Never let a failure break the chain of the chat it belongs to, or keep its permit
+            LOGGER.error("Error handling update {}", update.getUpdateId(), e);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    /** Resolves the ordering key of an update, or {@code null} when it has no chat. */
+    private static Long chatId(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasEditedMessage()) {
+            return update.getEditedMessage().getChatId();
+        }
+        if (update.hasChannelPost()) {
+            return update.getChannelPost().getChatId();
+        }
+        return null;
+    }
+
+    /** Waits until all dispatched updates were handled, then stops the virtual threads. */
+    @Override
+    public void close() {
+        // Queued stages are submitted to the executor only when their predecessor completes,
+        // shutting it down first would reject them. Every update holds a permit until handled.
+        inFlight.acquireUninterruptibly(maxInFlight);
+        try {
+            executor.close();
+        } finally {
+            inFlight.release(maxInFlight);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.acme;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.acme.model.LinkType;
+import org.acme.model.ProcessedLink;
+import org.acme.service.AmazonLinkService;
+import org.acme.service.AmazonUrlClassifier;
+import org.acme.service.UrlScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.inputmessagecontent.InputTextMessageContent;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+/**
+ * Answers inline queries ({@code @bot <amazon link>} typed in any chat) with the affiliate link.
+ * Telegram sends a query on every keystroke, so only what is cheap is answered right away:
+ *
+ * <ul>
+ *   <li>queries without a short link or product URL get an empty answer, without any request
+ *   <li>product URLs need no request and short links already in the resolution cache none either
+ *   <li>other short links are resolved only once the user stopped typing for {@code debounce};
+ *       queries superseded by a newer one from the same user are never answered
+ * </ul>
+ *
+ * <p>Answers carry {@code cacheTime}, so Telegram serves the same query again from its own cache;
+ * failed resolutions are not cached.
+ */
+public final class InlineQueryHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InlineQueryHandler.class);
+
+    private final TelegramClient client;
+    private final Function<String, ProcessedLink> processAmazonUrl;
+    private final Predicate<String> isResolutionCached;
+    private final Function<List<ProcessedLink>, List<String>> formatResponses;
+    private final Duration debounce;
+    private final int cacheSeconds;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Long> latestQueryOfUser = new ConcurrentHashMap<>();
+    private final LongAdder answered = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+
+    public InlineQueryHandler(
+            TelegramClient client,
+            Function<String, ProcessedLink> processAmazonUrl,
+            Predicate<String> isResolutionCached,
+            Function<List<ProcessedLink>, List<String>> formatResponses,
+            Duration debounce,
+            Duration cacheTime) {
+        this.client = client;
+        this.processAmazonUrl = processAmazonUrl;
+        this.isResolutionCached = isResolutionCached;
+        this.formatResponses = formatResponses;
+        this.debounce = debounce;
+        this.cacheSeconds = (int) cacheTime.toSeconds();
+    }
+
+    public void handle(InlineQuery inlineQuery) {
+        var userId = inlineQuery.getFrom().getId();
+        var url = amazonUrl(inlineQuery.getQuery());
+        if (url == null) {
+            latestQueryOfUser.remove(userId); // Supersedes a query still waiting for its answer
+            answer(inlineQuery, List.of(), cacheSeconds);
+            return;
+        }
+
+        var type = AmazonUrlClassifier.classify(url);
+        if (type != LinkType.AMAZON_SHORT || isResolutionCached.test(url)) {
+            latestQueryOfUser.remove(userId);
+            answer(inlineQuery, processAmazonUrl.apply(url));
+            return;
+        }
+
+        // Only the latest query of a user is resolved, once it stayed unchanged for a while
+        var queryNumber = sequence.incrementAndGet();
+        latestQueryOfUser.put(userId, queryNumber);
+        CompletableFuture.runAsync(
+                () -> {
+                    if (!latestQueryOfUser.remove(userId, queryNumber)) {
+                        superseded.increment();
+                        LOGGER.debug("Inline query {} superseded", inlineQuery.getId());
+                        return;
+                    }
+                    answer(inlineQuery, processAmazonUrl.apply(url));
+                },
+                CompletableFuture.delayedExecutor(
+                        debounce.toMillis(),
+                        TimeUnit.MILLISECONDS,
+                        AmazonLinkService.VIRTUAL_THREADS));
+    }
+
+    /** The first URL of the query when it is a complete Amazon URL, {@code null} otherwise. */
+    static String amazonUrl(String query) {
+        if (query == null || query.length() < "http://a.co/x".length()) {
+            return null;
+        }
+        var urls = UrlScanner.urls(query);
+        if (urls.isEmpty()) {
+            return null;
+        }
+        var url = urls.getFirst();
+        if (AmazonUrlClassifier.classify(url) == LinkType.AMAZON_SHORT) {
+            // A short link still being typed ends right after its host or a path separator
+            return url.endsWith("/") ? null : url;
+        }
+        // Anything else has to carry an ASIN already, there is nothing to resolve
+        return AmazonUrlClassifier.isProductUrl(url) ? url : null;
+    }
+
+    private void answer(InlineQuery inlineQuery, ProcessedLink processed) {
+        var responses = formatResponses.apply(List.of(processed));
+        if (responses.isEmpty()) {
+            answer(inlineQuery, List.of(), 0); // Resolution failed, maybe not next time
+            return;
+        }
+        var text = responses.getFirst();
+        var article =
+                InlineQueryResultArticle.builder()
+                        .id(processed.asin() != null ? processed.asin() : "link")
+                        .title(text)
+                        .description(processed.finalUrl())
+                        .inputMessageContent(
+                                InputTextMessageContent.builder().messageText(text).build())
+                        .build();
+        answer(inlineQuery, List.of(article), cacheSeconds);
+    }
+
+    private void answer(
+            InlineQuery inlineQuery, List<InlineQueryResultArticle> results, int cacheSeconds) {
+        var answer =
+                AnswerInlineQuery.builder()
+                        .inlineQueryId(inlineQuery.getId())
+                        .results(results)
+                        .cacheTime(cacheSeconds)
+                        .isPersonal(false)
+                        .build();
+        try {
+            client.executeAsync(answer)
+                    .whenComplete(
+                            (ok, error) -> {
+                                if (error != null) {
+                                    LOGGER.warn(
+                                            "Could not answer inline query {}: {}",
+                                            inlineQuery.getId(),
+                                            error.toString());
+                                } else {
+                                    answered.increment();
+                                }
+                            });
+        } catch (TelegramApiException | RuntimeException e) {
+            LOGGER.warn("Could not answer inline query {}", inlineQuery.getId(), e);
+        }
+    }
+
+    /** Inline queries Telegram accepted an answer for, including the empty answers. */
+    public long answered() {
+        return answered.sum();
+    }
+
+    /** Inline queries dropped because the user kept typing. */
+    public long superseded() {
+        return superseded.sum();
+    }
+}
@@ -1,54 +1,461 @@
 package org.acme;
 
-import java.net.http.HttpClient;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.util.ContextInitializer;
+import ch.qos.logback.core.joran.spi.JoranException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import org.acme.BotFactory.Storefront;
+import org.acme.BotFactory.StorefrontBot;
+import org.acme.metrics.Metrics;
+import org.acme.metrics.MetricsServer;
 import org.acme.service.AffiliateService;
 import org.acme.service.AmazonLinkService;
-import org.acme.service.LinkProcessor;
-import org.acme.util.HttpRedirectFollower;
+import org.acme.service.AppendOnlyResolvedLinkStore;
+import org.acme.service.ResolvedLinkStore;
+import org.acme.util.ResolverTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
 import org.telegram.telegrambots.longpolling.TelegramBotsLongPollingApplication;
+import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
 
 public class Main {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Main.class);
 
     public static void main(String... args) {
-        try (var botsApplication = new TelegramBotsLongPollingApplication();
-                var httpClient =
-                        HttpClient.newBuilder()
-                                .followRedirects(HttpClient.Redirect.NEVER)
-                                .connectTimeout(Duration.ofSeconds(10))
-                                .build()) {
-            var botToken = System.getenv("BOT_TOKEN");
-            var client = new OkHttpTelegramClient(botToken);
-            var amazonLinkService =
-                    new AmazonLinkService(
-                            new HttpRedirectFollower(
-                                            httpRequest -> {
-                                                try {
-                                                    return httpClient.send(
-                                                            httpRequest,
-                                                            HttpResponse.BodyHandlers.ofString());
-                                                } catch (Exception e) {
-                                                    return null;
-                                                }
-                                            })
-                                    ::followRedirects,
-                            new AffiliateService(System.getenv("AFFILIATE_TAG"))::addAffiliateTag);
-            var linkProcessor =
-                    new LinkProcessor(
-                            amazonLinkService::isAmazonUrl, amazonLinkService::processAmazonUrl);
-            botsApplication.registerBot(
-                    botToken,
-                    new BeautyByUbeBot(
-                            client, linkProcessor::processMessage, linkProcessor::formatResponses));
-            Thread.currentThread().join();
+        var timer = StartupTimer.sinceProcessStart();
+        var bulk = args.length > 0 && "--bulk".equals(args[0]);
+        if (bulk) {
+            logToStandardError();
+        }
+        var training = args.length > 0 && args[0].startsWith("--train=");
+        var metrics = new Metrics();
+        var factory = BotFactory.fromEnvironment(metrics);
+        // JVM-wide, set before anything builds an HTTP client or looks up a host
+        var resolverSettings = factory.resolverSettings();
+        ResolverTransport.configureJdk(resolverSettings);
+        try (var transport = new ResolverTransport(resolverSettings)) {
+            var resolver =
+                    factory.resolver(
+                            training ? Main::notResolvedWhileTraining : transport::sendAsync);
+            var resolvedLinks = ResolvedLinkStore.NONE;
+            var resolvedLinksFile = env("RESOLVED_LINKS_FILE", "");
+            if (!resolvedLinksFile.isEmpty()) {
+                var store =
+                        AppendOnlyResolvedLinkStore.open(
+                                Path.of(resolvedLinksFile),
+                                intEnv("RESOLVED_LINKS_MAX_ENTRIES", 100_000));
+                Runtime.getRuntime().addShutdownHook(new Thread(store::close));
+                metrics.gauge(
+                        "bot_resolved_links_stored",
+                        "Short links in the persistent store.",
+                        store::size);
+                resolvedLinks = store;
+            }
+
+            if (bulk) {
+                convert(args, resolver::followRedirects, resolvedLinks);
+                return;
+            }
+
+            // Training needs no token, nothing is sent to Telegram
+            var storefronts =
+                    training
+                            ? List.of(
+                                    new Storefront(
+                                            1, "training", env("AFFILIATE_TAG", "training-21")))
+                            : factory.storefronts();
+            var webhooks =
+                    !training && "webhook".equalsIgnoreCase(env("UPDATE_MODE", "polling"));
+            // Checked before anything starts, a missing URL would only fail at registration
+            var webhookUrl = webhooks ? webhookUrl() : null;
+            var bots = new ArrayList<StorefrontBot>();
+            for (var storefront : storefronts) {
+                bots.add(
+                        factory.storefrontBot(
+                                storefront,
+                                new OkHttpTelegramClient(storefront.token()),
+                                resolver,
+                                resolvedLinks,
+                                timer,
+                                !training));
+            }
+            if (training) {
+                train(Path.of(args[0].substring("--train=".length())), bots.getFirst());
+                return;
+            }
+
+            var sendQueues =
+                    bots.stream().map(StorefrontBot::sendQueue).filter(Objects::nonNull).toList();
+            if (!sendQueues.isEmpty()) {
+                metrics.gauge(
+                        "bot_send_queue_depth",
+                        "Replies waiting to be sent.",
+                        sum(sendQueues, TelegramSendQueue::queueDepth));
+                metrics.counter(
+                        "bot_send_dropped_total",
+                        "Replies dropped because the send queue was full.",
+                        sum(sendQueues, TelegramSendQueue::dropped));
+                metrics.counter(
+                        "bot_send_retries_total",
+                        "Replies sent again after an error.",
+                        sum(sendQueues, TelegramSendQueue::retried));
+            }
+            metrics.counter(
+                    "bot_duplicate_links_total",
+                    "Links answered from the duplicate window instead of being processed again.",
+                    sum(bots, bot -> bot.recentLinks().suppressed()));
+            metrics.counter(
+                    "bot_update_replays_total",
+                    "Updates ignored because Telegram had delivered them before.",
+                    sum(bots, bot -> bot.replayFilter().replays()));
+            metrics.counter(
+                    "bot_inline_queries_answered_total",
+                    "Inline queries answered, with or without a result.",
+                    sum(bots, bot -> bot.inlineQueries().answered()));
+            metrics.counter(
+                    "bot_inline_queries_superseded_total",
+                    "Inline queries left unanswered because the user kept typing.",
+                    sum(bots, bot -> bot.inlineQueries().superseded()));
+            metrics.gauge(
+                    "bot_first_update_seconds",
+                    "Seconds from the process start until the first update was handled.",
+                    timer::firstUpdateSeconds);
+            metrics.gauge(
+                    "bot_resolution_cache_entries",
+                    "Short links in the resolution cache.",
+                    resolver.resolutionCache()::size);
+            metrics.counter(
+                    "bot_resolution_cache_hits_total",
+                    "Short links answered from the cache.",
+                    resolver.resolutionCache()::hits);
+            metrics.counter(
+                    "bot_resolution_cache_misses_total",
+                    "Short links that had to be resolved.",
+                    resolver.resolutionCache()::misses);
+            metrics.counter(
+                    "bot_resolver_tls_handshakes_total",
+                    "New TLS sessions seen while resolving links, about the TLS handshakes.",
+                    transport::handshakes);
+            metrics.counter(
+                    "bot_resolver_connection_reuses_total",
+                    "Responses on an already seen TLS session, about the reused connections.",
+                    transport::reusedConnections);
+            metrics.counter(
+                    "bot_resolver_http2_responses_total",
+                    "Resolution responses received over HTTP/2.",
+                    transport::http2Responses);
+            metrics.counter(
+                    "bot_resolver_rejected_open_total",
+                    "Resolution requests refused because the host's circuit was open.",
+                    resolver.circuitBreaker()::rejectedOpen);
+            metrics.counter(
+                    "bot_resolver_rejected_limit_total",
+                    "Resolution requests refused because the host was at its concurrency limit.",
+                    resolver.circuitBreaker()::rejectedLimit);
+            metrics.counter(
+                    "bot_resolution_coalesced_total",
+                    "Resolutions that waited for an identical one already in flight.",
+                    resolver.coalescingFollower()::coalesced);
+            // Healthy while updates are received and every send queue still sends
+            var receiving = new AtomicBoolean();
+            var metricsPort = intEnv("METRICS_PORT", 9090);
+            if (metricsPort > 0) {
+                // Stopped with the JVM, it has to answer health checks until the very end.
+                // Only local by default, the metrics are not meant to be public
+                MetricsServer.start(
+                        new InetSocketAddress(
+                                env("METRICS_BIND_ADDRESS", "127.0.0.1"), metricsPort),
+                        metrics,
+                        () ->
+                                receiving.get()
+                                        && sendQueues.stream()
+                                                .allMatch(TelegramSendQueue::isRunning));
+            }
+            // Connections to the short-link hosts are ready before the first link arrives,
+            // building the HTTP client does not hold up polling
+            Thread.ofVirtual().name("resolver-warm-up").start(transport::warmUp);
+            LOGGER.info("Starting {} bot(s) sharing one link resolver", bots.size());
+            if (webhooks) {
+                serveWebhooks(bots, webhookUrl, timer, receiving);
+            } else {
+                poll(bots, timer, receiving);
+            }
         } catch (Exception e) {
-            LOGGER.error("Error instantiating bot", e);
+            if (!bulk) {
+                LOGGER.error("Error instantiating bot", e);
+                return;
+            }
+            if (e instanceof IllegalArgumentException || e instanceof IllegalStateException) {
+                LOGGER.error("Bulk conversion failed: {}", e.getMessage());
+            } else {
+                LOGGER.error("Bulk conversion failed", e);
+            }
+            System.exit(1);
+        }
+    }
+
+    /** Sends the logs to standard error, standard output carries the converted links. */
+    private static void logToStandardError() {
+        System.setProperty("LOG_TARGET", "System.err");
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext context) {
+            context.reset();
+            try {
+                new ContextInitializer(context).autoConfig();
+            } catch (JoranException e) {
+                System.err.println("Could not configure logging: " + e);
+            }
+        }
+    }
+
+    private static void poll(List<StorefrontBot> bots, StartupTimer timer, AtomicBoolean receiving)
+            throws Exception {
+        var dispatchers = new ArrayList<ConcurrentUpdateConsumer>();
+        try (var botsApplication = new TelegramBotsLongPollingApplication()) {
+            for (var bot : bots) {
+                if ("single".equalsIgnoreCase(env("UPDATE_DISPATCH", "virtual"))) {
+                    botsApplication.registerBot(
+                            bot.storefront().token(),
+                            (LongPollingSingleThreadUpdateConsumer) bot.handleUpdate()::accept);
+                } else {
+                    var dispatcher =
+                            new ConcurrentUpdateConsumer(
+                                    bot.handleUpdate(), intEnv("MAX_IN_FLIGHT_UPDATES", 64));
+                    dispatchers.add(dispatcher);
+                    botsApplication.registerBot(bot.storefront().token(), dispatcher);
+                }
+            }
+            timer.ready(bots.size());
+            receiving.set(true);
+            Thread.currentThread().join();
+        } finally {
+            receiving.set(false);
+            dispatchers.forEach(ConcurrentUpdateConsumer::close);
+        }
+    }
+
+    /** All bots share one port, the second one on {@code WEBHOOK_PATH/2} and so on. */
+    private static void serveWebhooks(
+            List<StorefrontBot> bots,
+            String webhookUrl,
+            StartupTimer timer,
+            AtomicBoolean receiving)
+            throws Exception {
+        var path = env("WEBHOOK_PATH", "/telegram");
+        var secret = System.getenv("WEBHOOK_SECRET");
+        var dispatchers = new ArrayList<ConcurrentUpdateConsumer>();
+        var handlers = new LinkedHashMap<String, Consumer<Update>>();
+        for (var bot : bots) {
+            // Updates are queued before Telegram's delivery is acknowledged, so with one webhook
+            // connection the dispatcher sees every chat's updates in order
+            var dispatcher =
+                    new ConcurrentUpdateConsumer(
+                            bot.handleUpdate(), intEnv("MAX_IN_FLIGHT_UPDATES", 64));
+            dispatchers.add(dispatcher);
+            handlers.put(path + bot.storefront().suffix("/"), dispatcher::dispatch);
+        }
+        try (var webhookServer =
+                WebhookServer.start(
+                        new InetSocketAddress(intEnv("WEBHOOK_PORT", 8080)), secret, handlers)) {
+            for (var bot : bots) {
+                var url = webhookUrl + bot.storefront().suffix("/");
+                bot.client()
+                        .execute(
+                                SetWebhook.builder()
+                                        .url(url)
+                                        .secretToken(secret)
+                                        .maxConnections(intEnv("WEBHOOK_MAX_CONNECTIONS", 1))
+                                        .build());
+            }
+            LOGGER.info("Webhooks registered, port {}", webhookServer.port());
+            timer.ready(bots.size());
+            receiving.set(true);
+            Thread.currentThread().join();
+        } finally {
+            receiving.set(false);
+            dispatchers.forEach(ConcurrentUpdateConsumer::close);
+        }
+    }
+
+    /**
+     * {@code --train=FILE}: replays the updates of {@code FILE}, one JSON object per line, through
+     * {@code bot} and returns once all of them were handled. Short links are not resolved, they
+     * fail like an unreachable host. Run with {@code -XX:ArchiveClassesAtExit} to record the
+     * classes startup and the first updates need in a class data sharing archive.
+     */
+    private static void train(Path updates, StorefrontBot bot) throws IOException {
+        var objectMapper =
+                new ObjectMapper()
+                        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        int replayed = 0;
+        var handled = new Semaphore(0);
+        Consumer<Update> handleUpdate =
+                update -> {
+                    try {
+                        bot.handleUpdate().accept(update);
+                    } finally {
+                        handled.release();
+                    }
+                };
+        try (var reader = Files.newBufferedReader(updates, StandardCharsets.UTF_8);
+                var dispatcher =
+                        new ConcurrentUpdateConsumer(
+                                handleUpdate, intEnv("MAX_IN_FLIGHT_UPDATES", 64))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                // Recorded updates may share an id, the replay filter would drop them
+                var json = (ObjectNode) objectMapper.readTree(line);
+                json.put("update_id", ++replayed);
+                dispatcher.dispatch(objectMapper.treeToValue(json, Update.class));
+            }
+            // The sample updates share a chat, most of them are still queued behind the first
+            handled.acquireUninterruptibly(replayed);
         }
+        LOGGER.info("Replayed {} updates from {}", replayed, updates);
+    }
+
+    /**
+     * Answers the requests of training runs without sending them: the sample links are
+     * placeholders, resolving them would only send requests for links that do not exist.
+     */
+    private static CompletableFuture<HttpResponse<Void>> notResolvedWhileTraining(
+            HttpRequest request) {
+        return CompletableFuture.failedFuture(
+                new IOException("Not resolved while training: " + request.uri()));
+    }
+
+    /**
+     * {@code --bulk [--input=FILE] [--output=FILE] [--format=csv|jsonl] [--concurrency=N]}:
+     * converts the links of a file, standard input by default, instead of starting the bot.
+     */
+    private static void convert(
+            String[] args,
+            Function<String, CompletableFuture<String>> followRedirects,
+            ResolvedLinkStore resolvedLinks)
+            throws IOException {
+        var options = new HashMap<String, String>();
+        for (var arg : Arrays.asList(args).subList(1, args.length)) {
+            var separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        var affiliateTag = env("AFFILIATE_TAG", "");
+        if (affiliateTag.isEmpty()) {
+            throw new IllegalStateException("AFFILIATE_TAG is required to convert links");
+        }
+        var affiliateService =
+                new AffiliateService(
+                        affiliateTag, Boolean.parseBoolean(env("CANONICAL_LINKS", "false")));
+        var amazonLinkService =
+                new AmazonLinkService(
+                        url -> followRedirects.apply(url).join(),
+                        affiliateService::addAffiliateTag,
+                        followRedirects,
+                        resolvedLinks);
+        var concurrency = options.getOrDefault("concurrency", "16");
+        if (!concurrency.matches("[1-9][0-9]{0,5}")) {
+            throw new IllegalArgumentException(
+                    "--concurrency must be a number from 1 to 999999: " + concurrency);
+        }
+        var converter =
+                new BulkConverter(
+                        amazonLinkService::isAmazonUrl,
+                        amazonLinkService::processAmazonUrlAsync,
+                        Integer.parseInt(concurrency));
+        var formatName = options.getOrDefault("format", "csv");
+        var format =
+                Arrays.stream(BulkConverter.Format.values())
+                        .filter(candidate -> candidate.name().equalsIgnoreCase(formatName))
+                        .findFirst()
+                        .orElseThrow(
+                                () ->
+                                        new IllegalArgumentException(
+                                                "--format must be csv or jsonl: " + formatName));
+        var input = options.get("input");
+        if (input != null && !Files.isRegularFile(Path.of(input))) {
+            throw new IllegalArgumentException("--input is not a file: " + input);
+        }
+        var output = options.get("output");
+        var charset = StandardCharsets.UTF_8;
+        try (var reader =
+                        input == null
+                                ? new BufferedReader(new InputStreamReader(System.in, charset))
+                                : Files.newBufferedReader(Path.of(input), charset);
+                var writer =
+                        output == null
+                                ? new BufferedWriter(new OutputStreamWriter(System.out, charset))
+                                : Files.newBufferedWriter(Path.of(output), charset)) {
+            converter.convert(reader, writer, format);
+        }
+    }
+
+    /** The HTTPS URL Telegram posts updates to, without a trailing slash. */
+    private static String webhookUrl() {
+        var webhookUrl = env("WEBHOOK_URL", "");
+        if (webhookUrl.isEmpty()) {
+            throw new IllegalStateException("WEBHOOK_URL is required with UPDATE_MODE=webhook");
+        }
+        URI uri;
+        try {
+            uri = new URI(webhookUrl);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("WEBHOOK_URL is not a valid URL: " + webhookUrl, e);
+        }
+        if (!"https".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            throw new IllegalStateException(
+                    "WEBHOOK_URL must be an https URL Telegram can reach: " + webhookUrl);
+        }
+        return webhookUrl.endsWith("/")
+                ? webhookUrl.substring(0, webhookUrl.length() - 1)
+                : webhookUrl;
+    }
+
+    private static <T> DoubleSupplier sum(List<T> parts, ToDoubleFunction<T> value) {
+        return () -> parts.stream().mapToDouble(value).sum();
+    }
+
+    private static String env(String name, String defaultValue) {
+        var value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        return Integer.parseInt(env(name, Integer.toString(defaultValue)));
     }
 }
@@ -0,0 +1,56 @@
+package org.acme;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.acme.service.UrlScanner;
+import org.telegram.telegrambots.meta.api.objects.MessageEntity;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+/**
+ * Extracts the URLs of a message from the entities Telegram already parsed, instead of scanning
+ * its text again. This also finds the targets of {@code text_link} entities, links hidden behind
+ * other text, which never appear in the text itself.
+ *
+ * <p>Messages without entities, e.g. updates not built by Telegram, fall back to {@link
+ * UrlScanner}, which rejects text without any {@code ://} in a single pass.
+ */
+final class MessageUrls {
+
+    private MessageUrls() {}
+
+    static List<String> of(Message message) {
+        var text = message.getText();
+        var entities = message.getEntities();
+        return entities == null || entities.isEmpty()
+                ? UrlScanner.urls(text)
+                : fromEntities(text, entities);
+    }
+
+    private static List<String> fromEntities(String text, List<MessageEntity> entities) {
+        var urls = new ArrayList<String>();
+        for (var entity : entities) {
+            var url =
+                    switch (entity.getType()) {
+                        case "url" -> entityText(text, entity);
+                        case "text_link" -> entity.getUrl();
+                        case null, default -> null;
+                    };
+            if (url != null && !url.isEmpty()) {
+                // Telegram also links bare domains like amzn.to/abc
+                urls.add(url.contains("://") ? url : "https://" + url);
+            }
+        }
+        return urls;
+    }
+
+    /** Offsets are in UTF-16 code units, the same as {@link String} indices. */
+    private static String entityText(String text, MessageEntity entity) {
+        var offset = entity.getOffset();
+        var length = entity.getLength();
+        if (text == null || offset == null || length == null) {
+            return null;
+        }
+        int end = offset + length;
+        return offset < 0 || end > text.length() ? null : text.substring(offset, end);
+    }
+}
@@ -0,0 +1,65 @@
+package org.acme;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the cold start from the moment the process started: when the bot is ready to receive
+ * updates, and when the first update was handled. Updates sent while the previous instance was
+ * being replaced are delivered on the first poll, so the latter is the gap users notice during a
+ * deploy.
+ */
+public final class StartupTimer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupTimer.class);
+
+    private final long startMillis;
+    private final LongSupplier clock;
+    private final AtomicBoolean firstUpdateHandled = new AtomicBoolean();
+    private volatile double firstUpdateSeconds = Double.NaN;
+
+    StartupTimer(long startMillis, LongSupplier clock) {
+        this.startMillis = startMillis;
+        this.clock = clock;
+    }
+
+    public static StartupTimer sinceProcessStart() {
+        var now = System.currentTimeMillis();
+        var startMillis =
+                ProcessHandle.current()
+                        .info()
+                        .startInstant()
+                        .map(Instant::toEpochMilli)
+                        .orElse(now);
+        return new StartupTimer(startMillis, System::currentTimeMillis);
+    }
+
+    long elapsedMillis() {
+        return clock.getAsLong() - startMillis;
+    }
+
+    void ready(int bots) {
+        LOGGER.info("{} bot(s) ready for updates {} ms after start", bots, elapsedMillis());
+    }
+
+    /** Wraps {@code handler} to record when the first update of any bot was handled. */
+    <T> Consumer<T> timeFirstUpdate(Consumer<T> handler) {
+        return update -> {
+            handler.accept(update);
+            if (!firstUpdateHandled.get() && firstUpdateHandled.compareAndSet(false, true)) {
+                var elapsed = elapsedMillis();
+                firstUpdateSeconds = elapsed / 1_000.0;
+                LOGGER.info("First update handled {} ms after start", elapsed);
+            }
+        };
+    }
+
+    /** Seconds from the process start until the first update was handled, NaN until then. */
+    double firstUpdateSeconds() {
+        return firstUpdateSeconds;
+    }
+}
@@ -0,0 +1,444 @@
+package org.acme;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.acme.metrics.Metrics;
+import org.acme.metrics.Stage;
+import org.acme.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+/**
+ * Bounded outbound queue in front of {@link TelegramClient}. A single dispatcher thread hands
+ * messages to {@code executeAsync} while respecting Telegram's rate limits: one token bucket for
+ * the whole bot and one per chat, with a lower rate for groups. Chats are served round-robin so a
+ * busy group does not delay private chats, and at most one message per chat is in flight so
+ * replies keep their order.
+ *
+ * <p>A {@code 429} reply pauses the chat for the {@code retry_after} Telegram asks for; server and
+ * network errors are retried with exponential backoff. When the queue is full the {@link
+ * OverflowPolicy} decides what gives.
+ */
+public final class TelegramSendQueue implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TelegramSendQueue.class);
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int CHAT_BURST = 3;
+    private static final long INITIAL_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+    public enum OverflowPolicy {
+        DROP_NEWEST, // Reject the message being submitted
+        DROP_OLDEST, // Evict the message that has been waiting the longest
+        BLOCK // Make the submitting thread wait for room
+    }
+
+    /** Messages per second for the bot, per private chat, and per minute for a group. */
+    public record RateLimits(double globalPerSecond, double chatPerSecond, double groupPerMinute) {
+
+        /** Telegram's documented limits for bots. */
+        public static final RateLimits TELEGRAM = new RateLimits(30, 1, 20);
+    }
+
+    private final TelegramClient client;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final RateLimits rateLimits;
+    private final Metrics metrics;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final LinkedHashMap<String, ChatQueue> chats = new LinkedHashMap<>();
+    private final TokenBucket globalBucket;
+    private int depth;
+    private long sequence;
+    private boolean closed;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder latencyTotalNanos = new LongAdder();
+    private final LongAccumulator latencyMaxNanos = new LongAccumulator(Math::max, 0);
+
+    private final Thread dispatcher;
+
+    public TelegramSendQueue(
+            TelegramClient client,
+            int capacity,
+            OverflowPolicy overflowPolicy,
+            RateLimits rateLimits) {
+        this(client, capacity, overflowPolicy, rateLimits, new Metrics());
+    }
+
+    public TelegramSendQueue(
+            TelegramClient client,
+            int capacity,
+            OverflowPolicy overflowPolicy,
+            RateLimits rateLimits,
+            Metrics metrics) {
+        this(client, capacity, overflowPolicy, rateLimits, metrics, System::nanoTime);
+    }
+
+    TelegramSendQueue(
+            TelegramClient client,
+            int capacity,
+            OverflowPolicy overflowPolicy,
+            RateLimits rateLimits,
+            Metrics metrics,
+            LongSupplier nanoClock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.client = client;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.rateLimits = rateLimits;
+        this.metrics = metrics;
+        this.nanoClock = nanoClock;
+        this.globalBucket =
+                new TokenBucket(
+                        rateLimits.globalPerSecond(),
+                        Duration.ofSeconds(1),
+                        (int) Math.max(1, rateLimits.globalPerSecond()),
+                        nanoClock.getAsLong());
+        this.dispatcher = Thread.ofVirtual().name("telegram-send-queue").start(this::dispatch);
+    }
+
+    /**
+     * Queues a message for sending. Returns {@code false} when the message was rejected because
+     * the queue is full or closed.
+     */
+    public boolean submit(SendMessage message) {
+        lock.lock();
+        try {
+            while (!closed && depth >= capacity) {
+                switch (overflowPolicy) {
+                    case DROP_NEWEST -> {
+                        dropped.increment();
+                        LOGGER.warn(
+                                "Send queue full, dropping message to chat {}",
+                                message.getChatId());
+                        return false;
+                    }
+                    case DROP_OLDEST -> dropOldest();
+                    case BLOCK -> notFull.awaitUninterruptibly();
+                }
+            }
+            if (closed) {
+                dropped.increment();
+                return false;
+            }
+
+            var chatId = message.getChatId();
+            chats.computeIfAbsent(chatId, this::newChatQueue)
+                    .messages()
+                    .addLast(new Pending(message, nanoClock.getAsLong(), sequence++, 1));
+            depth++;
+            changed.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Same as {@link #submit(SendMessage)}, for use as a {@code Consumer<SendMessage>}. */
+    public void send(SendMessage message) {
+        submit(message);
+    }
+
+    private ChatQueue newChatQueue(String chatId) {
+        var now = nanoClock.getAsLong();
+        // Group and channel ids are negative
+        var bucket =
+                chatId.startsWith("-")
+                        ? new TokenBucket(
+                                rateLimits.groupPerMinute(), Duration.ofMinutes(1), CHAT_BURST, now)
+                        : new TokenBucket(
+                                rateLimits.chatPerSecond(), Duration.ofSeconds(1), CHAT_BURST, now);
+        return new ChatQueue(chatId, new ArrayDeque<>(), bucket);
+    }
+
+    private void dropOldest() {
+        ChatQueue oldest = null;
+        long oldestSequence = Long.MAX_VALUE;
+        for (var chat : chats.values()) {
+            var head = chat.messages().peekFirst();
+            if (head != null && head.sequence() < oldestSequence) {
+                oldest = chat;
+                oldestSequence = head.sequence();
+            }
+        }
+        if (oldest != null) {
+            var evicted = oldest.messages().pollFirst();
+            depth--;
+            dropped.increment();
+            LOGGER.warn(
+                    "Send queue full, dropping oldest message to chat {}",
+                    evicted.message().getChatId());
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            var next = takeNext();
+            if (next == null) {
+                return;
+            }
+            sendAsync(next.chat(), next.pending());
+        }
+    }
+
+    /** Waits until a message may be sent under the rate limits; {@code null} once closed. */
+    private Next takeNext() {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed && depth == 0) {
+                    return null;
+                }
+
+                long now = nanoClock.getAsLong();
+                long wait = globalBucket.nanosUntilAvailable(now);
+                ChatQueue ready = null;
+
+                if (wait == 0) {
+                    wait = Long.MAX_VALUE;
+                    var iterator = chats.values().iterator();
+                    while (iterator.hasNext()) {
+                        var chat = iterator.next();
+                        if (chat.inFlight) {
+                            continue;
+                        }
+                        if (chat.messages().isEmpty()) {
+                            if (now - chat.blockedUntil >= 0 && chat.bucket().isFull(now)) {
+                                iterator.remove(); // Idle long enough to forget
+                            }
+                            continue;
+                        }
+                        long chatWait =
+                                Math.max(
+                                        chat.blockedUntil - now,
+                                        chat.bucket().nanosUntilAvailable(now));
+                        if (chatWait <= 0) {
+                            ready = chat;
+                            break;
+                        }
+                        wait = Math.min(wait, chatWait);
+                    }
+                }
+
+                if (ready != null) {
+                    globalBucket.take(now);
+                    ready.bucket().take(now);
+                    ready.inFlight = true;
+                    var pending = ready.messages().pollFirst();
+                    depth--;
+                    notFull.signal();
+                    // Move the chat to the back so the others get their turn
+                    chats.remove(ready.chatId());
+                    chats.put(ready.chatId(), ready);
+                    return new Next(ready, pending);
+                }
+
+                if (wait == Long.MAX_VALUE) {
+                    changed.awaitUninterruptibly();
+                } else {
+                    try {
+                        changed.awaitNanos(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sendAsync(ChatQueue chat, Pending pending) {
+        long start = System.nanoTime();
+        try {
+            client.executeAsync(pending.message())
+                    .whenComplete(
+                            (result, error) -> {
+                                metrics.recordLatency(Stage.SEND, start);
+                                onSent(chat, pending, error);
+                            });
+        } catch (TelegramApiException | RuntimeException e) {
+            onSent(chat, pending, e);
+        }
+    }
+
+    private void onSent(ChatQueue chat, Pending pending, Throwable error) {
+        var cause = error instanceof CompletionException ? error.getCause() : error;
+        lock.lock();
+        try {
+            chat.inFlight = false;
+            long now = nanoClock.getAsLong();
+
+            if (cause == null) {
+                sent.increment();
+                long latency = now - pending.enqueuedAt();
+                latencyTotalNanos.add(latency);
+                latencyMaxNanos.accumulate(latency);
+                LOGGER.debug("Response sent to chat {}", chat.chatId());
+            } else {
+                metrics.sendError();
+                long retryIn = retryDelayNanos(cause, pending.attempts());
+                if (retryIn >= 0 && !closed) {
+                    retried.increment();
+                    chat.blockedUntil = now + retryIn;
+                    chat.messages().addFirst(pending.retry());
+                    depth++;
+                    LOGGER.warn(
+                            "Send to chat {} failed (attempt {}), retrying in {} ms: {}",
+                            chat.chatId(),
+                            pending.attempts(),
+                            TimeUnit.NANOSECONDS.toMillis(retryIn),
+                            cause.getMessage());
+                } else {
+                    failed.increment();
+                    LOGGER.error("Failed to send response to chat {}", chat.chatId(), cause);
+                }
+            }
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Delay before the next attempt, or -1 when the message should be given up. */
+    private static long retryDelayNanos(Throwable cause, int attempts) {
+        if (attempts >= MAX_ATTEMPTS) {
+            return -1;
+        }
+        long backoff = INITIAL_BACKOFF_NANOS << (attempts - 1);
+        if (cause instanceof TelegramApiRequestException requestException
+                && requestException.getErrorCode() != null) {
+            int errorCode = requestException.getErrorCode();
+            if (errorCode == 429) {
+                var parameters = requestException.getParameters();
+                return parameters != null && parameters.getRetryAfter() != null
+                        ? TimeUnit.SECONDS.toNanos(parameters.getRetryAfter())
+                        : backoff;
+            }
+            // Other client errors (bad request, bot blocked...) will not get better
+            return errorCode >= 500 ? backoff : -1;
+        }
+        return cause instanceof TelegramApiException ? backoff : -1;
+    }
+
+    /** Whether the dispatcher is still sending; it stops once the queue is closed. */
+    public boolean isRunning() {
+        return dispatcher.isAlive();
+    }
+
+    /** Messages waiting to be sent. */
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return depth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long sent() {
+        return sent.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public long retried() {
+        return retried.sum();
+    }
+
+    /** Mean time from submit to Telegram's acknowledgement, in milliseconds. */
+    public double averageSendLatencyMillis() {
+        long count = sent.sum();
+        return count == 0 ? 0 : latencyTotalNanos.sum() / 1e6 / count;
+    }
+
+    public double maxSendLatencyMillis() {
+        return latencyMaxNanos.get() / 1e6;
+    }
+
+    /** Stops accepting messages and waits a bounded time for the queued ones to go out. */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (!dispatcher.join(CLOSE_TIMEOUT)) {
+                dispatcher.interrupt();
+                LOGGER.warn("Send queue closed with {} messages still queued", queueDepth());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class ChatQueue {
+
+        private final String chatId;
+        private final ArrayDeque<Pending> messages;
+        private final TokenBucket bucket;
+        private boolean inFlight;
+        private long blockedUntil;
+
+        ChatQueue(String chatId, ArrayDeque<Pending> messages, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.messages = messages;
+            this.bucket = bucket;
+        }
+
+        String chatId() {
+            return chatId;
+        }
+
+        ArrayDeque<Pending> messages() {
+            return messages;
+        }
+
+        TokenBucket bucket() {
+            return bucket;
+        }
+    }
+
+    private record Pending(SendMessage message, long enqueuedAt, long sequence, int attempts) {
+
+        Pending retry() {
+            return new Pending(message, enqueuedAt, sequence, attempts + 1);
+        }
+    }
+
+    private record Next(ChatQueue chat, Pending pending) {}
+}
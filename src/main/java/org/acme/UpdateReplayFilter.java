@@ -0,0 +1,175 @@
+package org.acme;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Drops updates Telegram delivers again. The offset confirming received updates only reaches
+ * Telegram with the next poll, and a webhook call is retried when its answer got lost, so after a
+ * restart or a network hiccup the same messages can arrive twice.
+ *
+ * <p>The most recent update ids are remembered, and only those are dropped: Telegram starts
+ * numbering from a random id again after a week without updates or a webhook change, so ids are
+ * not compared with each other. With a {@code file}, that window of ids is also written out, off
+ * the path of the updates: at most every {@code flushInterval}, and on {@link #close()}. An id is
+ * recorded when the update arrives, so an update that was being handled when the bot stopped is
+ * not handled again: a missing reply is preferred over a duplicate one. After a crash, the updates
+ * of the last {@code flushInterval} can be handled twice.
+ */
+public final class UpdateReplayFilter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpdateReplayFilter.class);
+    private static final int RECENT_IDS = 1_024;
+    private static final Duration FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    private final Path file;
+    private final ScheduledExecutorService flusher;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, Boolean> recentIds =
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+                    return size() > RECENT_IDS;
+                }
+            };
+    private final LongAdder replays = new LongAdder();
+    private boolean dirty;
+
+    private UpdateReplayFilter(Path file, List<Integer> storedIds, Duration flushInterval) {
+        this.file = file;
+        storedIds.forEach(id -> recentIds.put(id, Boolean.TRUE));
+        if (file == null) {
+            this.flusher = null;
+        } else {
+            this.flusher =
+                    Executors.newSingleThreadScheduledExecutor(
+                            Thread.ofVirtual().name("update-id-flusher").factory());
+            flusher.scheduleWithFixedDelay(
+                    this::flush,
+                    flushInterval.toMillis(),
+                    flushInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Only remembers the updates seen since the bot started. */
+    public static UpdateReplayFilter inMemory() {
+        return new UpdateReplayFilter(null, List.of(), FLUSH_INTERVAL);
+    }
+
+    /** Also drops the updates handled shortly before a restart, as recorded in {@code file}. */
+    public static UpdateReplayFilter open(Path file) {
+        return open(file, FLUSH_INTERVAL);
+    }
+
+    static UpdateReplayFilter open(Path file, Duration flushInterval) {
+        var storedIds = new ArrayList<Integer>();
+        try {
+            for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    storedIds.add(Integer.parseInt(line.trim()));
+                }
+            }
+            LOGGER.info("Ignoring {} updates handled before the restart", storedIds.size());
+        } catch (NoSuchFileException e) {
+            LOGGER.info("No update ids stored yet at {}", file);
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.warn("Could not read the last update ids from {}", file, e);
+            storedIds.clear();
+        }
+        return new UpdateReplayFilter(file, storedIds, flushInterval);
+    }
+
+    /** Wraps {@code handler} so it only sees each update once. */
+    public Consumer<Update> filter(Consumer<Update> handler) {
+        return update -> {
+            if (firstDelivery(update.getUpdateId())) {
+                handler.accept(update);
+            }
+        };
+    }
+
+    /** Records {@code updateId}, returning {@code false} when it was seen before. */
+    boolean firstDelivery(Integer updateId) {
+        if (updateId == null) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (recentIds.putIfAbsent(updateId, Boolean.TRUE) != null) {
+                replays.increment();
+                LOGGER.info("Ignoring update {} delivered again", updateId);
+                return false;
+            }
+            dirty = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Writes the recent ids out if they changed since the last time, replacing the file. */
+    private void flush() {
+        String ids;
+        lock.lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            var joined = new StringBuilder(recentIds.size() * 11);
+            recentIds.keySet().forEach(id -> joined.append(id).append('\n'));
+            ids = joined.toString();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            var parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            var written = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(written, ids, StandardCharsets.UTF_8);
+            Files.move(
+                    written,
+                    file,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Could not persist the last update ids to {}", file, e);
+        }
+    }
+
+    /** Updates dropped because they had been delivered before. */
+    public long replays() {
+        return replays.sum();
+    }
+
+    /** Stops the periodic writes and writes the ids recorded since the last one. */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.close();
+            flush();
+        }
+    }
+}
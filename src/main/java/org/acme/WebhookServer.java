@@ -0,0 +1,127 @@
+package org.acme;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Receives updates pushed by Telegram instead of polling for them. Each request runs on a virtual
+ * thread: the secret token header is checked, the {@link Update} is parsed and handed to {@code
+ * handler}, and only then does Telegram get its {@code 200}.
+ *
+ * <p>Telegram sends the next update over a connection once the previous one was acknowledged, so
+ * with a single webhook connection updates reach {@code handler} in order. {@code handler} should
+ * therefore only queue the update, e.g. {@link ConcurrentUpdateConsumer#dispatch(Update)}, or slow
+ * link resolution would hold up the delivery of every other chat.
+ */
+public final class WebhookServer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebhookServer.class);
+    static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private WebhookServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static WebhookServer start(
+            InetSocketAddress address, String path, String secretToken, Consumer<Update> handler)
+            throws IOException {
+        return start(address, secretToken, Map.of(path, handler));
+    }
+
+    /** Serves several bots on one port, each on its own path, sharing the secret token. */
+    public static WebhookServer start(
+            InetSocketAddress address, String secretToken, Map<String, Consumer<Update>> handlers)
+            throws IOException {
+        if (secretToken == null || secretToken.isBlank()) {
+            throw new IllegalArgumentException("A secret token is required in webhook mode");
+        }
+        // Telegram adds fields to Update over time, they must not break parsing
+        var objectMapper =
+                new ObjectMapper()
+                        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        var expectedToken = secretToken.getBytes(StandardCharsets.UTF_8);
+
+        var server = HttpServer.create(address, 0);
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        handlers.forEach(
+                (path, handler) ->
+                        server.createContext(
+                                path,
+                                exchange ->
+                                        receive(exchange, expectedToken, objectMapper, handler)));
+        server.start();
+        for (var path : handlers.keySet()) {
+            LOGGER.info("Listening for webhook updates on {}{}", server.getAddress(), path);
+        }
+        return new WebhookServer(server, executor);
+    }
+
+    private static void receive(
+            HttpExchange exchange,
+            byte[] expectedToken,
+            ObjectMapper objectMapper,
+            Consumer<Update> handler)
+            throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            var token = exchange.getRequestHeaders().getFirst(SECRET_TOKEN_HEADER);
+            if (token == null
+                    || !MessageDigest.isEqual(
+                            expectedToken, token.getBytes(StandardCharsets.UTF_8))) {
+                LOGGER.warn("Rejected webhook call from {}", exchange.getRemoteAddress());
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            Update update;
+            try (var body = exchange.getRequestBody()) {
+                update = objectMapper.readValue(body, Update.class);
+            } catch (IOException e) {
+                LOGGER.warn("Rejected malformed webhook update", e);
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            // Queued before the acknowledgement, so the next update of a chat comes after it
+            try {
+                handler.accept(update);
+            } catch (RuntimeException e) {
+                // Acknowledged anyway, Telegram would only deliver the same update again
+                LOGGER.error("Error handling update {}", update.getUpdateId(), e);
+            }
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+}
@@ -0,0 +1,179 @@
+package org.acme.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import org.acme.model.LinkType;
+import org.acme.model.ProcessedLink;
+
+/**
+ * Metrics of the update pipeline, shared by the components it is handed to. Counters are {@link
+ * LongAdder}s and latencies go to fixed-bucket {@link Histogram}s, so recording is a couple of
+ * uncontended adds on the hot path. {@link #scrape()} renders everything in the Prometheus text
+ * format; registering two gauges or counters under one name fails.
+ */
+public final class Metrics {
+
+    private static final long FIRST_LATENCY_BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(16);
+    private static final int LATENCY_BUCKETS = 22; // 16µs to about 67s
+
+    private final LongAdder updatesConsumed = new LongAdder();
+    private final LongAdder[] linksFound = adders(LinkType.values().length);
+    private final LongAdder linksProcessed = new LongAdder();
+    private final LongAdder linksFailed = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final Histogram hopsPerLink = Histogram.linear(5);
+    private final Histogram[] stageLatency = new Histogram[Stage.values().length];
+    private final Map<String, External> external = new ConcurrentSkipListMap<>();
+
+    public Metrics() {
+        for (int i = 0; i < stageLatency.length; i++) {
+            stageLatency[i] = Histogram.exponential(FIRST_LATENCY_BUCKET_NANOS, LATENCY_BUCKETS);
+        }
+    }
+
+    /** A value owned by another component, read at scrape time. */
+    private record External(String help, String type, DoubleSupplier value) {}
+
+    public void updateConsumed() {
+        updatesConsumed.increment();
+    }
+
+    /** Counts a link that was not handed to Amazon processing. */
+    public void linkFound(LinkType type) {
+        linksFound[type.ordinal()].increment();
+    }
+
+    /** Counts a processed Amazon link by type and outcome. */
+    public void linkProcessed(ProcessedLink processedLink) {
+        linkFound(processedLink.type() == null ? LinkType.UNKNOWN : processedLink.type());
+        (processedLink.processed() ? linksProcessed : linksFailed).increment();
+    }
+
+    public void redirectHops(int hops) {
+        hopsPerLink.record(hops);
+    }
+
+    /** Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading. */
+    public void recordLatency(Stage stage, long startNanos) {
+        stageLatency[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public void sendError() {
+        sendErrors.increment();
+    }
+
+    /** Exposes a value that goes up and down, such as a queue depth. */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        register(name, new External(help, "gauge", value));
+    }
+
+    /** Exposes a count that only goes up, kept by another component. */
+    public void counter(String name, String help, DoubleSupplier value) {
+        register(name, new External(help, "counter", value));
+    }
+
+    private void register(String name, External metric) {
+        if (external.putIfAbsent(name, metric) != null) {
+            throw new IllegalStateException("Metric already registered: " + name);
+        }
+    }
+
+    public String scrape() {
+        var out = new StringBuilder(8192);
+
+        counter(out, "bot_updates_consumed_total", "Updates received from Telegram.");
+        sample(out, "bot_updates_consumed_total", "", updatesConsumed.sum());
+
+        counter(out, "bot_links_found_total", "Links found in messages, by type.");
+        for (var type : LinkType.values()) {
+            sample(
+                    out,
+                    "bot_links_found_total",
+                    label("type", type),
+                    linksFound[type.ordinal()].sum());
+        }
+
+        counter(out, "bot_links_processed_total", "Amazon links processed, by outcome.");
+        sample(out, "bot_links_processed_total", "{outcome=\"success\"}", linksProcessed.sum());
+        sample(out, "bot_links_processed_total", "{outcome=\"failure\"}", linksFailed.sum());
+
+        counter(out, "bot_telegram_send_errors_total", "Replies Telegram did not accept.");
+        sample(out, "bot_telegram_send_errors_total", "", sendErrors.sum());
+
+        header(out, "bot_redirect_hops", "Redirects followed per short link.", "histogram");
+        histogram(out, "bot_redirect_hops", "", hopsPerLink, 1);
+
+        header(out, "bot_stage_latency_seconds", "Latency of each pipeline stage.", "histogram");
+        for (var stage : Stage.values()) {
+            histogram(
+                    out,
+                    "bot_stage_latency_seconds",
+                    "stage=\"" + stage.name().toLowerCase(Locale.ROOT) + "\",",
+                    stageLatency[stage.ordinal()],
+                    1e9);
+        }
+
+        external.forEach(
+                (name, external) -> {
+                    header(out, name, external.help(), external.type());
+                    sample(out, name, "", external.value().getAsDouble());
+                });
+
+        return out.toString();
+    }
+
+    private static void histogram(
+            StringBuilder out, String name, String labels, Histogram histogram, double scale) {
+        var upperBounds = histogram.upperBounds();
+        var cumulative = histogram.cumulativeCounts();
+        for (int i = 0; i < upperBounds.length; i++) {
+            sample(
+                    out,
+                    name + "_bucket",
+                    "{" + labels + "le=\"" + format(upperBounds[i] / scale) + "\"}",
+                    cumulative[i]);
+        }
+        long count = cumulative[cumulative.length - 1];
+        sample(out, name + "_bucket", "{" + labels + "le=\"+Inf\"}", count);
+        // Drop the trailing comma that separates the labels from le
+        var plainLabels =
+                labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        sample(out, name + "_sum", plainLabels, histogram.sum() / scale);
+        sample(out, name + "_count", plainLabels, count);
+    }
+
+    private static void counter(StringBuilder out, String name, String help) {
+        header(out, name, help, "counter");
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ').append(format(value)).append('\n');
+    }
+
+    private static String label(String name, Enum<?> value) {
+        return "{" + name + "=\"" + value.name().toLowerCase(Locale.ROOT) + "\"}";
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    private static LongAdder[] adders(int size) {
+        var adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
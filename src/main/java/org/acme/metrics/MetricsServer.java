@@ -0,0 +1,77 @@
+package org.acme.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Small HTTP server for operations: {@code /metrics} in the Prometheus text format and {@code
+ * /health}, which answers 200 while {@code healthy} holds and 503 otherwise. Requests run on
+ * virtual threads.
+ */
+public final class MetricsServer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsServer.class);
+    private static final String PROMETHEUS_CONTENT_TYPE =
+            "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private MetricsServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static MetricsServer start(
+            InetSocketAddress address, Metrics metrics, BooleanSupplier healthy)
+            throws IOException {
+        var server = HttpServer.create(address, 0);
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext(
+                "/metrics",
+                exchange -> respond(exchange, 200, PROMETHEUS_CONTENT_TYPE, metrics.scrape()));
+        server.createContext(
+                "/health",
+                exchange -> {
+                    var up = healthy.getAsBoolean();
+                    respond(exchange, up ? 200 : 503, "text/plain", up ? "OK\n" : "DOWN\n");
+                });
+        server.start();
+        LOGGER.info("Metrics available at http://{}/metrics", server.getAddress());
+        return new MetricsServer(server, executor);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private static void respond(
+            HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        try (exchange) {
+            var bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                exchange.sendResponseHeaders(status, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+}
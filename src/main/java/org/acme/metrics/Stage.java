@@ -0,0 +1,10 @@
+package org.acme.metrics;
+
+/** Steps of the update pipeline whose latency is tracked. */
+public enum Stage {
+    EXTRACT, // Finding the URLs in a message
+    CLASSIFY, // Parsing type, domain and ASIN out of a URL
+    RESOLVE, // Following the redirects of a short link
+    TAG, // Building the affiliate link
+    SEND // Telegram round trip of a reply
+}
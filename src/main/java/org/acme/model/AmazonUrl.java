@@ -0,0 +1,9 @@
+package org.acme.model;
+
+public record AmazonUrl(String url, LinkType type, String domain, String asin) {
+
+    /** Whether the URL points at a product page, that is, an ASIN could be extracted. */
+    public boolean isProduct() {
+        return asin != null;
+    }
+}
@@ -1,5 +1,7 @@
 package org.acme.model;
 
+import java.util.Locale;
+
 public record ProcessedLink(
         String originalUrl,
         String finalUrl,
@@ -22,4 +24,14 @@ public record ProcessedLink(
             String affiliateUrl) {
         return new ProcessedLink(originalUrl, finalUrl, asin, domain, type, true, affiliateUrl);
     }
+
+    /**
+     * Identifies the product a link points to, so different URLs of the same product compare
+     * equal: domain and ASIN when known, the original URL otherwise.
+     */
+    public String productKey() {
+        return asin == null || domain == null
+                ? originalUrl
+                : domain.toLowerCase(Locale.ROOT) + "/" + asin.toUpperCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,5 @@
+package org.acme.model;
+
+/** What a short link turned out to point at, and when that was found out (epoch millis). */
+public record ResolvedLink(
+        String shortUrl, String finalUrl, String domain, String asin, long resolvedAt) {}
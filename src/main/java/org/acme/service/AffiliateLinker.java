@@ -0,0 +1,8 @@
+package org.acme.service;
+
+/** Turns an Amazon URL into its affiliate link, given the domain and ASIN already extracted. */
+@FunctionalInterface
+public interface AffiliateLinker {
+
+    String link(String url, String domain, String asin);
+}
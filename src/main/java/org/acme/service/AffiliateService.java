@@ -2,51 +2,98 @@ package org.acme.service;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public record AffiliateService(String affiliateTag) {
+/**
+ * Adds the affiliate tag to Amazon URLs. The tag is URL-encoded once up front; each URL is then
+ * rewritten in a single scan of its query string, dropping any existing {@code tag} parameter.
+ *
+ * <p>With {@code canonicalize} enabled, product links whose domain and ASIN are known are reduced
+ * to {@code https://<domain>/dp/<ASIN>?tag=...}, which also keeps outgoing messages short.
+ */
+public final class AffiliateService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AffiliateService.class);
 
+    private final String affiliateTag;
+    private final boolean canonicalize;
+    private final String tagParameter;
+
+    public AffiliateService(String affiliateTag) {
+        this(affiliateTag, false);
+    }
+
+    public AffiliateService(String affiliateTag, boolean canonicalize) {
+        this.affiliateTag = Objects.requireNonNull(affiliateTag, "affiliateTag");
+        this.canonicalize = canonicalize;
+        this.tagParameter = "tag=" + URLEncoder.encode(affiliateTag, StandardCharsets.UTF_8);
+    }
+
+    public String affiliateTag() {
+        return affiliateTag;
+    }
+
     public String addAffiliateTag(String amazonUrl) {
         if (amazonUrl == null || amazonUrl.isEmpty()) {
             LOGGER.warn("Cannot add affiliate tag to invalid URL or ASIN");
             return amazonUrl;
         }
 
-        try {
-            // Remove existing tag parameter if present
-            var cleanUrl = removeExistingTag(amazonUrl);
-
-            // Determine the separator (? or &) based on whether URL already has query parameters
-            var separator = cleanUrl.contains("?") ? "&" : "?";
+        int fragmentStart = amazonUrl.indexOf('#');
+        int queryEnd = fragmentStart < 0 ? amazonUrl.length() : fragmentStart;
+        int queryStart = amazonUrl.indexOf('?');
+        int pathEnd = queryStart < 0 || queryStart > queryEnd ? queryEnd : queryStart;
 
-            // Add the affiliate tag
-            var affiliateUrl =
-                    cleanUrl
-                            + separator
-                            + "tag="
-                            + URLEncoder.encode(affiliateTag, StandardCharsets.UTF_8);
+        var affiliateUrl =
+                new StringBuilder(amazonUrl.length() + tagParameter.length() + 1)
+                        .append(amazonUrl, 0, pathEnd);
 
-            LOGGER.debug("Added affiliate tag to URL: {} -> {}", amazonUrl, affiliateUrl);
-            return affiliateUrl;
+        // Copy the query parameters, skipping empty ones and any existing tag
+        char separator = '?';
+        int parameterStart = pathEnd + 1;
+        while (parameterStart < queryEnd) {
+            int parameterEnd = amazonUrl.indexOf('&', parameterStart);
+            if (parameterEnd < 0 || parameterEnd > queryEnd) {
+                parameterEnd = queryEnd;
+            }
+            if (parameterEnd > parameterStart && !amazonUrl.startsWith("tag=", parameterStart)) {
+                affiliateUrl.append(separator).append(amazonUrl, parameterStart, parameterEnd);
+                separator = '&';
+            }
+            parameterStart = parameterEnd + 1;
+        }
 
-        } catch (Exception e) {
-            LOGGER.error("Error adding affiliate tag to URL: {}", amazonUrl, e);
-            return amazonUrl;
+        affiliateUrl.append(separator).append(tagParameter);
+        if (fragmentStart >= 0) {
+            affiliateUrl.append(amazonUrl, fragmentStart, amazonUrl.length());
         }
+
+        LOGGER.debug("Added affiliate tag to URL: {} -> {}", amazonUrl, affiliateUrl);
+        return affiliateUrl.toString();
     }
 
-    /** Removes existing tag parameter from URL to avoid conflicts. */
-    private String removeExistingTag(String url) {
-        if (url == null) {
-            return null;
+    /**
+     * Adds the affiliate tag to a URL whose domain and ASIN were already extracted, building the
+     * canonical product link when {@code canonicalize} is enabled.
+     */
+    public String addAffiliateTag(String amazonUrl, String domain, String asin) {
+        if (!canonicalize || domain == null || asin == null) {
+            return addAffiliateTag(amazonUrl);
         }
 
-        // Remove tag=value parameter (handles various formats)
-        return url.replaceAll("[?&]tag=[^&]*", "")
-                .replaceAll("&+", "&") // Remove multiple consecutive &
-                .replaceAll("[?&]$", ""); // Remove trailing ? or &
+        var affiliateUrl =
+                new StringBuilder(domain.length() + asin.length() + tagParameter.length() + 14)
+                        .append("https://")
+                        .append(domain)
+                        .append("/dp/")
+                        .append(asin)
+                        .append('?')
+                        .append(tagParameter)
+                        .toString();
+
+        LOGGER.debug("Canonical affiliate URL: {} -> {}", amazonUrl, affiliateUrl);
+        return affiliateUrl;
     }
 }
@@ -1,28 +1,60 @@
 package org.acme.service;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
-import java.util.regex.Pattern;
+import org.acme.metrics.Metrics;
+import org.acme.metrics.Stage;
+import org.acme.model.AmazonUrl;
 import org.acme.model.LinkType;
 import org.acme.model.ProcessedLink;
+import org.acme.model.ResolvedLink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public record AmazonLinkService(
-        Function<String, String> redirectFollower, Function<String, String> affiliateService) {
+        Function<String, String> redirectFollower,
+        AffiliateLinker affiliateService,
+        Function<String, CompletableFuture<String>> asyncRedirectFollower,
+        ResolvedLinkStore resolvedLinks,
+        Metrics metrics) {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AmazonLinkService.class);
 
-    // Enhanced regex to handle various Amazon URL formats
-    private static final String AMAZON_REGEX =
-            "https?://(?:www\\.)?(amazon\\.[a-z.]{2,6}|a\\.[a-z.]{2,6}).*?(?:/dp/|/gp/product/)([A-Z0-9]{10}).*";
+    /** Runs blocking work, e.g. redirect followers when no asynchronous one is provided. */
+    public static final Executor VIRTUAL_THREADS = runnable -> Thread.ofVirtual().start(runnable);
 
-    // Regex for a.co, amzn.to short links
-    private static final String AMAZON_SHORT_REGEX = "https?://(a|amzn)\\.(co|to)/.*";
+    public AmazonLinkService(
+            Function<String, String> redirectFollower, AffiliateLinker affiliateService) {
+        this(redirectFollower, affiliateService, ResolvedLinkStore.NONE);
+    }
+
+    public AmazonLinkService(
+            Function<String, String> redirectFollower,
+            AffiliateLinker affiliateService,
+            ResolvedLinkStore resolvedLinks) {
+        this(
+                redirectFollower,
+                affiliateService,
+                url ->
+                        CompletableFuture.supplyAsync(
+                                () -> redirectFollower.apply(url), VIRTUAL_THREADS),
+                resolvedLinks);
+    }
 
-    private static final Pattern AMAZON_PATTERN =
-            Pattern.compile(AMAZON_REGEX, Pattern.CASE_INSENSITIVE);
-    private static final Pattern AMAZON_SHORT_PATTERN =
-            Pattern.compile(AMAZON_SHORT_REGEX, Pattern.CASE_INSENSITIVE);
+    public AmazonLinkService(
+            Function<String, String> redirectFollower,
+            AffiliateLinker affiliateService,
+            Function<String, CompletableFuture<String>> asyncRedirectFollower,
+            ResolvedLinkStore resolvedLinks) {
+        this(
+                redirectFollower,
+                affiliateService,
+                asyncRedirectFollower,
+                resolvedLinks,
+                new Metrics());
+    }
 
     public ProcessedLink processAmazonUrl(String url) {
         if (url == null || url.isEmpty()) {
@@ -31,37 +63,65 @@ public record AmazonLinkService(
 
         LOGGER.debug("Processing Amazon URL: {}", url);
 
-        LinkType linkType = detectLinkType(url);
+        // Type, domain and ASIN come out of a single pass over the URL
+        long start = System.nanoTime();
+        var amazonUrl = AmazonUrlClassifier.parse(url);
+        metrics.recordLatency(Stage.CLASSIFY, start);
+        if (amazonUrl == null) {
+            return ProcessedLink.failed(url, LinkType.NON_AMAZON);
+        }
 
-        return switch (linkType) {
-            case AMAZON_STANDARD -> processStandardAmazonUrl(url);
+        return switch (amazonUrl.type()) {
+            case AMAZON_STANDARD -> processStandardAmazonUrl(amazonUrl);
             case AMAZON_SHORT -> processShortAmazonUrl(url);
-            default -> ProcessedLink.failed(url, linkType);
+            default -> ProcessedLink.failed(url, amazonUrl.type());
         };
     }
 
-    /** Detects the type of Amazon link. */
-    private LinkType detectLinkType(String url) {
-        if (AMAZON_SHORT_PATTERN.matcher(url).matches()) {
-            return LinkType.AMAZON_SHORT;
-        }
-        if (AMAZON_PATTERN.matcher(url).matches()) {
-            return LinkType.AMAZON_STANDARD;
+    /**
+     * Asynchronous variant of {@link #processAmazonUrl(String)}: short links are resolved through
+     * {@code asyncRedirectFollower} instead of blocking the calling thread.
+     */
+    public CompletableFuture<ProcessedLink> processAmazonUrlAsync(String url) {
+        if (url == null
+                || url.isEmpty()
+                || AmazonUrlClassifier.classify(url) != LinkType.AMAZON_SHORT) {
+            return CompletableFuture.completedFuture(processAmazonUrl(url));
         }
-        if (isAmazonDomain(url)) {
-            return LinkType.AMAZON_STANDARD; // Might be a different format
+
+        var known = resolvedLinks.find(url);
+        if (known != null) {
+            return CompletableFuture.completedFuture(processKnownShortUrl(known));
         }
-        return LinkType.NON_AMAZON;
+
+        LOGGER.debug("Processing short Amazon URL asynchronously: {}", url);
+
+        long start = System.nanoTime();
+        var resolution = asyncRedirectFollower.apply(url);
+        var processed =
+                resolution.thenApply(
+                        finalUrl -> {
+                            metrics.recordLatency(Stage.RESOLVE, start);
+                            return processResolvedShortUrl(url, finalUrl);
+                        });
+        // Cancelling a dependent stage does not reach its source, forward it to abort the request
+        processed.whenComplete(
+                (result, error) -> {
+                    if (error instanceof CancellationException) {
+                        resolution.cancel(true);
+                    }
+                });
+        return processed;
     }
 
     /** Processes standard Amazon URLs (amazon.com/dp/, amazon.co.uk/gp/product/, etc.) */
-    private ProcessedLink processStandardAmazonUrl(String url) {
-        var matcher = AMAZON_PATTERN.matcher(url);
+    private ProcessedLink processStandardAmazonUrl(AmazonUrl amazonUrl) {
+        var url = amazonUrl.url();
 
-        if (matcher.matches()) {
-            var domain = matcher.group(1);
-            var asin = matcher.group(2);
-            var affiliateUrl = affiliateService.apply(url);
+        if (amazonUrl.isProduct()) {
+            var domain = amazonUrl.domain();
+            var asin = amazonUrl.asin();
+            var affiliateUrl = link(url, domain, asin);
 
             LOGGER.info("Processed standard Amazon URL - ASIN: {}, Domain: {}", asin, domain);
             return ProcessedLink.success(
@@ -73,11 +133,22 @@ public record AmazonLinkService(
 
     /** Processes short Amazon URLs (a.co) by following redirects. */
     private ProcessedLink processShortAmazonUrl(String url) {
+        var known = resolvedLinks.find(url);
+        if (known != null) {
+            return processKnownShortUrl(known);
+        }
+
         LOGGER.debug("Processing short Amazon URL, following redirects: {}", url);
 
+        long start = System.nanoTime();
         var finalUrl = redirectFollower.apply(url);
+        metrics.recordLatency(Stage.RESOLVE, start);
+        return processResolvedShortUrl(url, finalUrl);
+    }
 
-        if (finalUrl.equals(url)) {
+    /** Builds the result of a short Amazon URL once its redirects have been followed. */
+    private ProcessedLink processResolvedShortUrl(String url, String finalUrl) {
+        if (finalUrl == null || finalUrl.equals(url)) {
             LOGGER.warn("No redirect found for short URL: {}", url);
             return ProcessedLink.failed(url, LinkType.AMAZON_SHORT);
         }
@@ -85,12 +156,16 @@ public record AmazonLinkService(
         LOGGER.debug("Short URL resolved to: {}", finalUrl);
 
         // Now process the final URL as a standard Amazon URL
-        var matcher = AMAZON_PATTERN.matcher(finalUrl);
+        long start = System.nanoTime();
+        var amazonUrl = AmazonUrlClassifier.parse(finalUrl);
+        metrics.recordLatency(Stage.CLASSIFY, start);
 
-        if (matcher.matches()) {
-            var domain = matcher.group(1);
-            var asin = matcher.group(2);
-            var affiliateUrl = affiliateService.apply(finalUrl);
+        if (amazonUrl != null && amazonUrl.isProduct()) {
+            var domain = amazonUrl.domain();
+            var asin = amazonUrl.asin();
+            var affiliateUrl = link(finalUrl, domain, asin);
+            resolvedLinks.save(
+                    new ResolvedLink(url, finalUrl, domain, asin, System.currentTimeMillis()));
 
             LOGGER.info("Processed short Amazon URL - ASIN: {}, Domain: {}", asin, domain);
             return ProcessedLink.success(
@@ -100,13 +175,32 @@ public record AmazonLinkService(
         return ProcessedLink.failed(url, LinkType.AMAZON_SHORT);
     }
 
-    /** Checks if URL belongs to Amazon domain (basic check). */
-    private boolean isAmazonDomain(String url) {
-        return url.toLowerCase().contains("amazon.") || url.toLowerCase().contains("a.co");
+    /** Builds the result of a short Amazon URL resolved earlier, without any network call. */
+    private ProcessedLink processKnownShortUrl(ResolvedLink known) {
+        var affiliateUrl = link(known.finalUrl(), known.domain(), known.asin());
+
+        LOGGER.info(
+                "Processed stored short Amazon URL - ASIN: {}, Domain: {}",
+                known.asin(),
+                known.domain());
+        return ProcessedLink.success(
+                known.shortUrl(),
+                known.finalUrl(),
+                known.asin(),
+                known.domain(),
+                LinkType.AMAZON_SHORT,
+                affiliateUrl);
+    }
+
+    private String link(String url, String domain, String asin) {
+        long start = System.nanoTime();
+        var affiliateUrl = affiliateService.link(url, domain, asin);
+        metrics.recordLatency(Stage.TAG, start);
+        return affiliateUrl;
     }
 
     /** Checks if a URL is an Amazon URL (any type). */
     public boolean isAmazonUrl(String url) {
-        return detectLinkType(url) != LinkType.NON_AMAZON;
+        return AmazonUrlClassifier.classify(url) != LinkType.NON_AMAZON;
     }
 }
@@ -0,0 +1,215 @@
+package org.acme.service;
+
+import org.acme.model.AmazonUrl;
+import org.acme.model.LinkType;
+
+/**
+ * Single-pass classifier for Amazon URLs. It walks scheme, host and path once and gives the same
+ * answers as the regular expressions it replaces, without their backtracking:
+ *
+ * <ul>
+ *   <li>short links: {@code https?://(a|amzn)\.(co|to)/.*}
+ *   <li>product links: {@code
+ *       https?://(?:www\.)?(amazon\.[a-z.]{2,6}|a\.[a-z.]{2,6}).*?(?:/dp/|/gp/product/)([A-Z0-9]{10}).*}
+ * </ul>
+ *
+ * <p>Both are matched case-insensitively against the whole URL. Anything else containing {@code
+ * amazon.} or {@code a.co} is still reported as {@link LinkType#AMAZON_STANDARD}. Classifying a
+ * non-Amazon URL allocates nothing.
+ */
+public final class AmazonUrlClassifier {
+
+    private static final String DP = "/dp/";
+    private static final String GP_PRODUCT = "/gp/product/";
+    private static final int ASIN_LENGTH = 10;
+
+    private AmazonUrlClassifier() {}
+
+    /** Detects the type of Amazon link. */
+    public static LinkType classify(String url) {
+        if (url == null) {
+            return LinkType.NON_AMAZON;
+        }
+        if (isShortUrl(url)) {
+            return LinkType.AMAZON_SHORT;
+        }
+        if (asinStart(url) >= 0 || isAmazonDomain(url)) {
+            return LinkType.AMAZON_STANDARD;
+        }
+        return LinkType.NON_AMAZON;
+    }
+
+    /**
+     * Classifies the URL and extracts domain and ASIN in the same pass. Returns {@code null} for
+     * non-Amazon URLs.
+     */
+    public static AmazonUrl parse(String url) {
+        if (url == null) {
+            return null;
+        }
+
+        var shortUrl = isShortUrl(url);
+        int asinStart = asinStart(url);
+        if (!shortUrl && asinStart < 0 && !isAmazonDomain(url)) {
+            return null;
+        }
+
+        var type = shortUrl ? LinkType.AMAZON_SHORT : LinkType.AMAZON_STANDARD;
+        if (asinStart < 0) {
+            return new AmazonUrl(url, type, null, null);
+        }
+
+        int domainStart = hostStart(url, schemeEnd(url));
+        return new AmazonUrl(
+                url,
+                type,
+                url.substring(domainStart, domainEnd(url, domainStart)),
+                url.substring(asinStart, asinStart + ASIN_LENGTH));
+    }
+
+    /** Checks if URL is a product page with an ASIN that needs no further resolution. */
+    public static boolean isProductUrl(String url) {
+        return url != null && asinStart(url) >= 0;
+    }
+
+    private static boolean isShortUrl(String url) {
+        int p = schemeEnd(url);
+        if (p < 0) {
+            return false;
+        }
+        if (startsWith(url, p, "a.")) {
+            p += 2;
+        } else if (startsWith(url, p, "amzn.")) {
+            p += 5;
+        } else {
+            return false;
+        }
+        if (!startsWith(url, p, "co/") && !startsWith(url, p, "to/")) {
+            return false;
+        }
+        return !hasLineTerminator(url, p + 3);
+    }
+
+    /**
+     * Start of the ASIN when the whole URL is a product link on an Amazon host, otherwise -1. The
+     * ASIN is the first run of 10 letters or digits following {@code /dp/} or {@code
+     * /gp/product/}.
+     */
+    private static int asinStart(String url) {
+        int p = schemeEnd(url);
+        if (p < 0) {
+            return -1;
+        }
+        p = domainEnd(url, hostStart(url, p));
+        if (p < 0 || hasLineTerminator(url, p)) {
+            return -1;
+        }
+
+        for (int slash = url.indexOf('/', p); slash >= 0; slash = url.indexOf('/', slash + 1)) {
+            if (startsWith(url, slash, DP) && isAsin(url, slash + DP.length())) {
+                return slash + DP.length();
+            }
+            if (startsWith(url, slash, GP_PRODUCT) && isAsin(url, slash + GP_PRODUCT.length())) {
+                return slash + GP_PRODUCT.length();
+            }
+        }
+        return -1;
+    }
+
+    /** Index right after {@code http://} or {@code https://}, or -1. */
+    private static int schemeEnd(String url) {
+        if (startsWith(url, 0, "http://")) {
+            return 7;
+        }
+        if (startsWith(url, 0, "https://")) {
+            return 8;
+        }
+        return -1;
+    }
+
+    private static int hostStart(String url, int p) {
+        return startsWith(url, p, "www.") ? p + 4 : p;
+    }
+
+    /**
+     * End of {@code amazon.} or {@code a.} followed by 2 to 6 letters or dots (as many as
+     * possible) starting at {@code p}, or -1.
+     */
+    private static int domainEnd(String url, int p) {
+        if (startsWith(url, p, "amazon.")) {
+            p += 7;
+        } else if (startsWith(url, p, "a.")) {
+            p += 2;
+        } else {
+            return -1;
+        }
+
+        int end = p;
+        while (end < url.length() && end - p < 6 && isDomainChar(url.charAt(end))) {
+            end++;
+        }
+        return end - p >= 2 ? end : -1;
+    }
+
+    /**
+     * ASCII-only case-insensitive prefix check at {@code offset}, like {@code CASE_INSENSITIVE}
+     * without {@code UNICODE_CASE}.
+     */
+    private static boolean startsWith(String url, int offset, String prefix) {
+        if (offset + prefix.length() > url.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = url.charAt(offset + i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if (c != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsin(String url, int p) {
+        if (p + ASIN_LENGTH > url.length()) {
+            return false;
+        }
+        for (int i = p; i < p + ASIN_LENGTH; i++) {
+            char c = url.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDomainChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '.';
+    }
+
+    /** Line terminators stop a {@code .} in a regular expression, so they never match. */
+    private static boolean hasLineTerminator(String url, int from) {
+        for (int i = from; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Checks if URL belongs to Amazon domain (basic check). */
+    private static boolean isAmazonDomain(String url) {
+        return containsIgnoreCase(url, "amazon.") || containsIgnoreCase(url, "a.co");
+    }
+
+    private static boolean containsIgnoreCase(String url, String part) {
+        for (int i = 0; i <= url.length() - part.length(); i++) {
+            if (startsWith(url, i, part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
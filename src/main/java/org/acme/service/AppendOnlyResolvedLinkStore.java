@@ -0,0 +1,340 @@
+package org.acme.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import org.acme.model.ResolvedLink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ResolvedLinkStore} kept in memory and persisted to an append-only file, one
+ * tab-separated line per resolution: {@code resolvedAt shortUrl finalUrl domain asin}.
+ *
+ * <p>The file is read on the store's own background thread so startup does not wait for it; until
+ * it is loaded lookups simply miss. At most {@code maxEntries} links are kept, the least recently
+ * used one is dropped first. A short link saved again replaces the earlier line, and once the file
+ * holds more than twice as many lines as live entries it is rewritten with one line per link, on
+ * the same background thread. Every line is flushed when written, a torn last line after a crash
+ * is skipped on the next load.
+ */
+public final class AppendOnlyResolvedLinkStore implements ResolvedLinkStore, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppendOnlyResolvedLinkStore.class);
+    private static final int MIN_LINES_TO_COMPACT = 1_000;
+    static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private final Path file;
+    private final int maxEntries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, ResolvedLink> links;
+    // Loading and compacting run one after the other, never next to each other
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(
+                    Thread.ofVirtual().name("resolved-link-store").factory());
+    private final CompletableFuture<Void> loaded;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private BufferedWriter writer;
+    private int lines;
+    private boolean compactionScheduled;
+
+    private AppendOnlyResolvedLinkStore(Path file, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.file = file;
+        this.maxEntries = maxEntries;
+        // Access order turns the map into an LRU; the eldest entry is dropped once full
+        this.links =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, ResolvedLink> eldest) {
+                        return size() > AppendOnlyResolvedLinkStore.this.maxEntries;
+                    }
+                };
+        this.loaded = CompletableFuture.runAsync(this::load, executor);
+    }
+
+    /** Opens the store, loading {@code file} in the background; it is created when missing. */
+    public static AppendOnlyResolvedLinkStore open(Path file) {
+        return open(file, DEFAULT_MAX_ENTRIES);
+    }
+
+    /** Like {@link #open(Path)}, keeping at most {@code maxEntries} links. */
+    public static AppendOnlyResolvedLinkStore open(Path file, int maxEntries) {
+        return new AppendOnlyResolvedLinkStore(file, maxEntries);
+    }
+
+    @Override
+    public ResolvedLink find(String shortUrl) {
+        if (!loaded.isDone()) {
+            return null;
+        }
+        lock.lock();
+        try {
+            return links.get(shortUrl);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void save(ResolvedLink resolvedLink) {
+        if (!isStorable(resolvedLink)) {
+            LOGGER.debug("Not storing resolution with unexpected characters: {}", resolvedLink);
+            return;
+        }
+        lock.lock();
+        try {
+            links.put(resolvedLink.shortUrl(), resolvedLink);
+        } finally {
+            lock.unlock();
+        }
+
+        writeLock.lock();
+        try {
+            append(resolvedLink);
+            if (!compactionScheduled && needsCompaction()) {
+                compactionScheduled = true;
+                executor.execute(this::compactInBackground);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not persist resolution of {}", resolvedLink.shortUrl(), e);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Store closed, not compacting {}", file);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Completes once the file has been read. */
+    public CompletableFuture<Void> loaded() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return links.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void load() {
+        // Lines appended from here on are counted by append, only the ones before are read
+        long end;
+        writeLock.lock();
+        try {
+            end = Files.exists(file) ? Files.size(file) : 0;
+            lines = 0;
+        } catch (IOException e) {
+            LOGGER.error("Could not load resolved links from {}", file, e);
+            return;
+        } finally {
+            writeLock.unlock();
+        }
+
+        // Read without the lock so saves made meanwhile are not held up
+        int read = 0;
+        long position = 0;
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while (position < end && (line = reader.readLine()) != null) {
+                read++;
+                position += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                var resolvedLink = parse(line);
+                if (resolvedLink != null) {
+                    // Later lines and saves made while loading are newer
+                    lock.lock();
+                    try {
+                        links.merge(
+                                resolvedLink.shortUrl(),
+                                resolvedLink,
+                                (current, stored) ->
+                                        current.resolvedAt() >= stored.resolvedAt()
+                                                ? current
+                                                : stored);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            LOGGER.info("No resolved links stored yet at {}", file);
+        } catch (IOException e) {
+            LOGGER.error("Could not load resolved links from {}", file, e);
+            return;
+        }
+        LOGGER.info("Loaded {} resolved short links from {}", size(), file);
+
+        writeLock.lock();
+        try {
+            lines += read;
+            if (needsCompaction()) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not compact {}", file, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactInBackground() {
+        writeLock.lock();
+        try {
+            compactionScheduled = false;
+            if (needsCompaction()) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not compact {}", file, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean needsCompaction() {
+        return lines >= MIN_LINES_TO_COMPACT && lines > 2 * size();
+    }
+
+    /** Rewrites the file with one line per link, replacing it atomically. */
+    private void compact() throws IOException {
+        List<ResolvedLink> live;
+        lock.lock();
+        try {
+            live = new ArrayList<>(links.values());
+        } finally {
+            lock.unlock();
+        }
+
+        closeWriter();
+        var compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (var out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (var resolvedLink : live) {
+                out.write(format(resolvedLink));
+            }
+        }
+        Files.move(
+                compacted,
+                file,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.info("Compacted {} lines into {} in {}", lines, live.size(), file);
+        lines = live.size();
+    }
+
+    private void append(ResolvedLink resolvedLink) throws IOException {
+        if (writer == null) {
+            var parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            var torn = endsWithTornLine();
+            writer =
+                    Files.newBufferedWriter(
+                            file,
+                            StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND);
+            if (torn) {
+                writer.write('\n'); // Keep the new line from being glued to the torn one
+            }
+        }
+        writer.write(format(resolvedLink));
+        writer.flush();
+        lines++;
+    }
+
+    private boolean endsWithTornLine() throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return false;
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    private static String format(ResolvedLink resolvedLink) {
+        return resolvedLink.resolvedAt()
+                + "\t"
+                + resolvedLink.shortUrl()
+                + "\t"
+                + resolvedLink.finalUrl()
+                + "\t"
+                + resolvedLink.domain()
+                + "\t"
+                + resolvedLink.asin()
+                + "\n";
+    }
+
+    /** Parses a stored line, {@code null} for anything that is not a complete entry. */
+    static ResolvedLink parse(String line) {
+        var fields = line.split("\t", -1);
+        if (fields.length != 5) {
+            return null;
+        }
+        try {
+            return new ResolvedLink(
+                    fields[1], fields[2], fields[3], fields[4], Long.parseLong(fields[0]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isStorable(ResolvedLink resolvedLink) {
+        return isField(resolvedLink.shortUrl())
+                && isField(resolvedLink.finalUrl())
+                && isField(resolvedLink.domain())
+                && isField(resolvedLink.asin());
+    }
+
+    private static boolean isField(String value) {
+        return value != null
+                && !value.isEmpty()
+                && value.indexOf('\t') < 0
+                && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0;
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        // Lets a running load or compaction finish first
+        executor.close();
+        writeLock.lock();
+        try {
+            closeWriter();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -1,23 +1,46 @@
 package org.acme.service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.regex.Pattern;
+import org.acme.metrics.Metrics;
+import org.acme.metrics.Stage;
+import org.acme.model.LinkType;
 import org.acme.model.ProcessedLink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public record LinkProcessor(
-        Predicate<String> isAmazonUrl, Function<String, ProcessedLink> processAmazonUrl) {
+        Predicate<String> isAmazonUrl,
+        Function<String, ProcessedLink> processAmazonUrl,
+        Function<String, CompletableFuture<ProcessedLink>> processAmazonUrlAsync,
+        Metrics metrics) {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LinkProcessor.class);
 
-    // Pattern to extract URLs from text messages
-    private static final String URL_REGEX = "https?://[\\w\\-._~:/?#\\[\\]@!$&'()*+,;=%]+";
-    private static final Pattern URL_PATTERN = Pattern.compile(URL_REGEX);
+    public LinkProcessor(
+            Predicate<String> isAmazonUrl, Function<String, ProcessedLink> processAmazonUrl) {
+        this(
+                isAmazonUrl,
+                processAmazonUrl,
+                url ->
+                        CompletableFuture.supplyAsync(
+                                () -> processAmazonUrl.apply(url),
+                                AmazonLinkService.VIRTUAL_THREADS));
+    }
+
+    public LinkProcessor(
+            Predicate<String> isAmazonUrl,
+            Function<String, ProcessedLink> processAmazonUrl,
+            Function<String, CompletableFuture<ProcessedLink>> processAmazonUrlAsync) {
+        this(isAmazonUrl, processAmazonUrl, processAmazonUrlAsync, new Metrics());
+    }
 
     public List<ProcessedLink> processMessage(String message) {
         if (message == null || message.trim().isEmpty()) {
@@ -27,31 +50,71 @@ public record LinkProcessor(
 
         LOGGER.debug("Processing message: {}", message);
 
-        var urls = extractUrls(message);
+        return processUrls(extractUrls(message));
+    }
+
+    /** Processes URLs already extracted from a message, e.g. from its Telegram entities. */
+    public List<ProcessedLink> processUrls(List<String> urls) {
         var processedLinks = new ArrayList<ProcessedLink>();
 
-        for (String url : urls) {
+        for (String url : distinct(urls)) {
             if (isAmazonUrl.test(url)) {
                 ProcessedLink processed = processAmazonUrl.apply(url);
+                metrics.linkProcessed(processed);
                 processedLinks.add(processed);
                 LOGGER.info("Processed Amazon link: {} -> Success: {}", url, processed.processed());
             } else {
+                metrics.linkFound(LinkType.NON_AMAZON);
                 LOGGER.debug("Non-Amazon URL ignored: {}", url);
             }
         }
 
-        return processedLinks;
+        return distinctProducts(processedLinks);
     }
 
-    /** Extracts all URLs from a text message. */
-    private List<String> extractUrls(String text) {
-        var urls = new ArrayList<String>();
-        var matcher = URL_PATTERN.matcher(text);
+    /** Keeps the URLs that should be processed as Amazon links. */
+    List<String> amazonUrls(List<String> urls) {
+        var amazonUrls = new ArrayList<String>();
+        for (var url : distinct(urls)) {
+            if (isAmazonUrl.test(url)) {
+                amazonUrls.add(url);
+            } else {
+                metrics.linkFound(LinkType.NON_AMAZON);
+            }
+        }
+        return amazonUrls;
+    }
+
+    /** The same link pasted several times into a message is only processed once. */
+    private static Collection<String> distinct(List<String> urls) {
+        return urls.size() <= 1 ? urls : new LinkedHashSet<>(urls);
+    }
 
-        while (matcher.find()) {
-            urls.add(matcher.group());
+    /**
+     * Keeps the first link of each product, e.g. when a short link and a product URL of the same
+     * message resolve to the same ASIN, so the product is answered once.
+     */
+    static List<ProcessedLink> distinctProducts(List<ProcessedLink> processedLinks) {
+        if (processedLinks.size() <= 1) {
+            return processedLinks;
         }
+        var seen = new HashSet<String>();
+        var distinct = new ArrayList<ProcessedLink>(processedLinks.size());
+        for (var processed : processedLinks) {
+            if (seen.add(processed.productKey())) {
+                distinct.add(processed);
+            } else {
+                LOGGER.debug("Duplicate product in message ignored: {}", processed.originalUrl());
+            }
+        }
+        return distinct;
+    }
 
+    /** Extracts all URLs from a text message. */
+    List<String> extractUrls(String text) {
+        long start = System.nanoTime();
+        var urls = UrlScanner.urls(text);
+        metrics.recordLatency(Stage.EXTRACT, start);
         LOGGER.debug("Extracted {} URLs from message", urls.size());
         return urls;
     }
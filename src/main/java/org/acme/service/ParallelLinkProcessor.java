@@ -0,0 +1,173 @@
+package org.acme.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.acme.model.ProcessedLink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes the Amazon links of a message concurrently through {@link
+ * LinkProcessor#processAmazonUrlAsync()}, with at most {@code maxConcurrency} links in flight.
+ *
+ * <p>Results keep the order of the links in the message. Links that are still pending once {@code
+ * timeout} has elapsed are cancelled and left out, so the caller gets whatever finished in time.
+ * Cancelling reaches the HTTP exchange of a short link, so it stops holding a connection.
+ */
+public record ParallelLinkProcessor(
+        LinkProcessor linkProcessor, int maxConcurrency, Duration timeout) {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelLinkProcessor.class);
+
+    public ParallelLinkProcessor {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException(
+                    "maxConcurrency must be positive: " + maxConcurrency);
+        }
+    }
+
+    public List<ProcessedLink> processMessage(String message) {
+        if (message == null || message.trim().isEmpty()) {
+            LOGGER.debug("Empty or null message received");
+            return List.of();
+        }
+
+        return processUrls(linkProcessor.extractUrls(message));
+    }
+
+    /** Processes URLs already extracted from a message, e.g. from its Telegram entities. */
+    public List<ProcessedLink> processUrls(List<String> extractedUrls) {
+        var urls = linkProcessor.amazonUrls(extractedUrls);
+        if (urls.isEmpty()) {
+            return List.of();
+        }
+
+        var batch = new Batch(urls);
+        batch.start(Math.min(maxConcurrency, urls.size()));
+        batch.await(timeout);
+        return LinkProcessor.distinctProducts(batch.completed());
+    }
+
+    /** Launches the next link each time one finishes, keeping the window at its limit. */
+    private final class Batch {
+
+        private final List<String> urls;
+        private final List<CompletableFuture<ProcessedLink>> results;
+        private final List<CompletableFuture<ProcessedLink>> inFlight;
+        private final AtomicInteger next = new AtomicInteger();
+
+        Batch(List<String> urls) {
+            this.urls = urls;
+            this.results = new ArrayList<>(urls.size());
+            this.inFlight = new ArrayList<>(urls.size());
+            for (int i = 0; i < urls.size(); i++) {
+                results.add(new CompletableFuture<>());
+                inFlight.add(null);
+            }
+        }
+
+        void start(int window) {
+            for (int i = 0; i < window; i++) {
+                launchNext();
+            }
+        }
+
+        private void launchNext() {
+            int index = next.getAndIncrement();
+            if (index >= urls.size()) {
+                return;
+            }
+
+            var url = urls.get(index);
+            var result = results.get(index);
+            try {
+                var pending = linkProcessor.processAmazonUrlAsync().apply(url);
+                synchronized (inFlight) {
+                    inFlight.set(index, pending);
+                }
+                pending.whenComplete(
+                        (processed, error) -> {
+                            if (error != null) {
+                                result.completeExceptionally(error);
+                            } else {
+                                linkProcessor.metrics().linkProcessed(processed);
+                                result.complete(processed);
+                            }
+                            launchNext();
+                        });
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                launchNext();
+            }
+        }
+
+        void await(Duration timeout) {
+            try {
+                CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                        .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.warn(
+                        "Timed out after {} processing {} links, returning partial results",
+                        timeout,
+                        urls.size());
+                cancelRemaining();
+            } catch (ExecutionException e) {
+                // Individual failures are handled when collecting the results
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelRemaining();
+            }
+        }
+
+        private void cancelRemaining() {
+            // Stop launching new links, then abort the ones still running
+            next.set(urls.size());
+            synchronized (inFlight) {
+                for (var pending : inFlight) {
+                    if (pending != null) {
+                        pending.cancel(true);
+                    }
+                }
+            }
+        }
+
+        List<ProcessedLink> completed() {
+            var processedLinks = new ArrayList<ProcessedLink>(urls.size());
+            for (int i = 0; i < urls.size(); i++) {
+                var result = results.get(i);
+                // A link cancelled by the timeout completes with a CancellationException
+                if (!result.isDone() || result.isCancelled()) {
+                    LOGGER.warn("Amazon link not processed in time: {}", urls.get(i));
+                    processedLinks.add(failed(urls.get(i)));
+                } else if (result.isCompletedExceptionally()) {
+                    LOGGER.warn(
+                            "Failed to process Amazon link: {}",
+                            urls.get(i),
+                            result.exceptionNow());
+                    processedLinks.add(failed(urls.get(i)));
+                } else {
+                    var processed = result.join();
+                    processedLinks.add(processed);
+                    LOGGER.info(
+                            "Processed Amazon link: {} -> Success: {}",
+                            urls.get(i),
+                            processed.processed());
+                }
+            }
+            return processedLinks;
+        }
+
+        /** Reported like a link the sequential processor failed on, in its place. */
+        private ProcessedLink failed(String url) {
+            var failed = ProcessedLink.failed(url, AmazonUrlClassifier.classify(url));
+            linkProcessor.metrics().linkProcessed(failed);
+            return failed;
+        }
+    }
+}
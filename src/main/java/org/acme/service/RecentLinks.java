@@ -0,0 +1,123 @@
+package org.acme.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.acme.model.ProcessedLink;
+
+/**
+ * Links each chat was answered for during the last {@code window}, with the answer given, so a
+ * link re-posted in a group every few minutes is answered again with that same link instead of
+ * being resolved again.
+ *
+ * <p>Memory is fixed: at most {@code maxEntries} chat and link pairs are kept, the oldest answer is
+ * forgotten first. Entries are not refreshed by re-posts, so a link is processed again once per
+ * window at most.
+ */
+public final class RecentLinks {
+
+    /** Remembers nothing, every link is processed. */
+    public static final RecentLinks NONE = new RecentLinks(1, Duration.ZERO);
+
+    private final int maxEntries;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Answer> answers;
+    private final LongAdder suppressed = new LongAdder();
+
+    public RecentLinks(int maxEntries, Duration window) {
+        this(maxEntries, window, System::nanoTime);
+    }
+
+    RecentLinks(int maxEntries, Duration window, LongSupplier nanoClock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.windowNanos = window.toNanos();
+        this.nanoClock = nanoClock;
+        // Insertion order, the eldest entry is the oldest answer
+        this.answers =
+                new LinkedHashMap<>(16, 0.75f, false) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Answer> eldest) {
+                        return size() > RecentLinks.this.maxEntries;
+                    }
+                };
+    }
+
+    /** The answer {@code link} got in {@code chatId} within the window, {@code null} if none. */
+    public ProcessedLink recentAnswer(long chatId, String link) {
+        if (windowNanos <= 0) {
+            return null;
+        }
+        lock.lock();
+        try {
+            var answer = live(key(chatId, link), nanoClock.getAsLong());
+            if (answer == null) {
+                return null;
+            }
+            suppressed.increment();
+            return answer.link();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that {@code link} is being answered with {@code answer} in {@code chatId}. Returns
+     * {@code false}, and records nothing, when it already was within the window.
+     */
+    public boolean answer(long chatId, String link, ProcessedLink answer) {
+        if (windowNanos <= 0) {
+            return true;
+        }
+        var key = key(chatId, link);
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            if (live(key, now) != null) {
+                return false;
+            }
+            answers.put(key, new Answer(answer, now));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Must hold the lock; expired entries are dropped so a new answer goes to the back. */
+    private Answer live(String key, long now) {
+        var answer = answers.get(key);
+        if (answer != null && now - answer.answeredAt() >= windowNanos) {
+            answers.remove(key);
+            return null;
+        }
+        return answer;
+    }
+
+    private static String key(long chatId, String link) {
+        return chatId + " " + link;
+    }
+
+    /** Links answered from the window instead of being processed again. */
+    public long suppressed() {
+        return suppressed.sum();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return answers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Answer(ProcessedLink link, long answeredAt) {}
+}
@@ -0,0 +1,24 @@
+package org.acme.service;
+
+import org.acme.model.ResolvedLink;
+
+/** Remembers short links that were resolved to a product, so they are never resolved twice. */
+public interface ResolvedLinkStore {
+
+    /** Stores nothing; every short link is resolved over the network. */
+    ResolvedLinkStore NONE =
+            new ResolvedLinkStore() {
+                @Override
+                public ResolvedLink find(String shortUrl) {
+                    return null;
+                }
+
+                @Override
+                public void save(ResolvedLink resolvedLink) {}
+            };
+
+    /** The stored resolution of {@code shortUrl}, or {@code null} if it is not known. */
+    ResolvedLink find(String shortUrl);
+
+    void save(ResolvedLink resolvedLink);
+}
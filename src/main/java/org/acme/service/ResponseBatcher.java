@@ -0,0 +1,98 @@
+package org.acme.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs bot responses into as few Telegram messages as possible, one response per line, keeping
+ * their order. A response longer than {@code maxLength} on its own is split across messages,
+ * preferably at whitespace.
+ */
+public record ResponseBatcher(int maxLength) {
+
+    /** Telegram rejects messages longer than 4096 characters (UTF-16 code units). */
+    public static final int TELEGRAM_MAX_MESSAGE_LENGTH = 4096;
+
+    private static final char SEPARATOR = '\n';
+
+    public ResponseBatcher {
+        if (maxLength < 2) {
+            throw new IllegalArgumentException("maxLength too small: " + maxLength);
+        }
+    }
+
+    public ResponseBatcher() {
+        this(TELEGRAM_MAX_MESSAGE_LENGTH);
+    }
+
+    public List<String> batch(List<String> responses) {
+        if (responses.size() <= 1 && fits(responses)) {
+            return responses;
+        }
+
+        var messages = new ArrayList<String>();
+        var current = new StringBuilder(Math.min(maxLength, 1024));
+
+        for (var response : responses) {
+            if (response.length() > maxLength) {
+                flush(current, messages);
+                split(response, messages);
+                continue;
+            }
+
+            int needed = current.isEmpty() ? response.length() : response.length() + 1;
+            if (current.length() + needed > maxLength) {
+                flush(current, messages);
+            }
+            if (!current.isEmpty()) {
+                current.append(SEPARATOR);
+            }
+            current.append(response);
+        }
+
+        flush(current, messages);
+        return messages;
+    }
+
+    private boolean fits(List<String> responses) {
+        return responses.isEmpty() || responses.getFirst().length() <= maxLength;
+    }
+
+    private static void flush(StringBuilder current, List<String> messages) {
+        if (!current.isEmpty()) {
+            messages.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    /** Splits an oversized response into chunks, never breaking a surrogate pair. */
+    private void split(String response, List<String> messages) {
+        int start = 0;
+        while (response.length() - start > maxLength) {
+            int end = start + maxLength;
+            int whitespace = lastWhitespace(response, start, end);
+            if (whitespace > start) {
+                end = whitespace;
+            } else if (Character.isLowSurrogate(response.charAt(end))) {
+                end--;
+            }
+            messages.add(response.substring(start, end));
+            start = end;
+            while (start < response.length() && Character.isWhitespace(response.charAt(start))) {
+                start++;
+            }
+        }
+        if (start < response.length()) {
+            messages.add(response.substring(start));
+        }
+    }
+
+    private static int lastWhitespace(String text, int start, int end) {
+        for (int i = end; i > start; i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,72 @@
+package org.acme.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written replacement for the URL regular expression {@code
+ * https?://[\w\-._~:/?#\[\]@!$&'()*+,;=%]+}, giving the same matches in the same order.
+ *
+ * <p>It jumps from one {@code ://} to the next with {@link String#indexOf(String)}, so text
+ * without any, like a long forwarded message, is rejected in a single intrinsic scan. Nothing is
+ * allocated besides the URLs found and the list holding them.
+ */
+public final class UrlScanner {
+
+    private static final String SEPARATOR = "://";
+    private static final boolean[] URL_CHARS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            URL_CHARS[c] = true;
+            URL_CHARS[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            URL_CHARS[c] = true;
+        }
+        for (char c : "_-.~:/?#[]@!$&'()*+,;=%".toCharArray()) {
+            URL_CHARS[c] = true;
+        }
+    }
+
+    private UrlScanner() {}
+
+    /** Returns the URLs in {@code text}, an immutable empty list when there are none. */
+    public static List<String> urls(String text) {
+        List<String> urls = List.of();
+        int separator = text.indexOf(SEPARATOR);
+        while (separator >= 0) {
+            int start = schemeStart(text, separator);
+            int end = separator + SEPARATOR.length();
+            while (end < text.length() && isUrlChar(text.charAt(end))) {
+                end++;
+            }
+
+            if (start < 0 || end == separator + SEPARATOR.length()) {
+                separator = text.indexOf(SEPARATOR, separator + 1);
+                continue;
+            }
+            if (urls.isEmpty()) {
+                urls = new ArrayList<>();
+            }
+            urls.add(text.substring(start, end));
+            separator = text.indexOf(SEPARATOR, end);
+        }
+        return urls;
+    }
+
+    /** Start of the {@code http} or {@code https} scheme ending at {@code separator}, or -1. */
+    private static int schemeStart(String text, int separator) {
+        if (text.startsWith("https", separator - 5)) {
+            return separator - 5;
+        }
+        if (text.startsWith("http", separator - 4)) {
+            return separator - 4;
+        }
+        return -1;
+    }
+
+    static boolean isUrlChar(char c) {
+        return c < URL_CHARS.length && URL_CHARS[c];
+    }
+}
@@ -0,0 +1,171 @@
+package org.acme.util;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.acme.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking counterpart of {@link HttpRedirectFollower}: every hop is chained on the future
+ * returned by {@code sendAsync}, so no thread is parked while a response is pending.
+ *
+ * <p>All hops share one {@code deadline}; each request only gets the time that is left. The
+ * returned future completes with the original URL on errors and when the deadline expires, like
+ * the synchronous follower. Cancelling it aborts the hop currently in flight.
+ */
+public record AsyncHttpRedirectFollower(
+        Function<HttpRequest, ? extends CompletableFuture<? extends HttpResponse<?>>> sendAsync,
+        HttpRedirectFollower.Mode mode,
+        Predicate<String> isResolved,
+        Duration deadline,
+        Metrics metrics) {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncHttpRedirectFollower.class);
+
+    public AsyncHttpRedirectFollower(
+            Function<HttpRequest, ? extends CompletableFuture<? extends HttpResponse<?>>> sendAsync,
+            HttpRedirectFollower.Mode mode,
+            Predicate<String> isResolved,
+            Duration deadline) {
+        this(sendAsync, mode, isResolved, deadline, new Metrics());
+    }
+
+    public CompletableFuture<String> followRedirects(String originalUrl) {
+        if (originalUrl == null || originalUrl.isEmpty()) {
+            return CompletableFuture.completedFuture(originalUrl);
+        }
+        return new Resolution(originalUrl, System.nanoTime() + deadline.toNanos()).start();
+    }
+
+    /** State of one resolution; hops run one after the other, never concurrently. */
+    private final class Resolution {
+
+        private final String originalUrl;
+        private final long deadlineNanos;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private volatile CompletableFuture<?> currentHop;
+        private String currentUrl;
+        private int redirectCount;
+
+        Resolution(String originalUrl, long deadlineNanos) {
+            this.originalUrl = originalUrl;
+            this.deadlineNanos = deadlineNanos;
+            this.currentUrl = originalUrl;
+        }
+
+        CompletableFuture<String> start() {
+            // Whatever completes the result first (success, deadline, caller) stops the hop
+            result.whenComplete(
+                    (url, error) -> {
+                        metrics.redirectHops(redirectCount);
+                        var hop = currentHop;
+                        if (hop != null) {
+                            hop.cancel(true);
+                        }
+                    });
+            result.completeOnTimeout(
+                    originalUrl, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            send(mode.name());
+            return result;
+        }
+
+        private void send(String method) {
+            if (result.isDone()) {
+                return;
+            }
+            var remaining = Duration.ofNanos(deadlineNanos - System.nanoTime());
+            if (remaining.isNegative() || remaining.isZero()) {
+                LOGGER.warn("Deadline of {} exceeded for URL: {}", deadline, originalUrl);
+                result.complete(originalUrl);
+                return;
+            }
+
+            LOGGER.debug("Following redirect #{}: {}", redirectCount + 1, currentUrl);
+            try {
+                var request = HttpRedirectFollower.request(currentUrl, method, remaining);
+                // Keep the future of the exchange itself, cancelling a dependent stage would not
+                // abort the request
+                var hop = sendAsync.apply(request);
+                currentHop = hop;
+                hop.whenComplete((response, error) -> onResponse(method, response, error));
+                if (result.isDone()) {
+                    hop.cancel(true);
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void onResponse(String method, HttpResponse<?> response, Throwable error) {
+            if (error != null || response == null) {
+                fail(error);
+                return;
+            }
+
+            try {
+                int statusCode = response.statusCode();
+
+                if (method.equals("HEAD") && (statusCode == 405 || statusCode == 501)) {
+                    LOGGER.debug(
+                            "HEAD rejected with {}, retrying with GET: {}", statusCode, currentUrl);
+                    send("GET");
+                    return;
+                }
+
+                if (statusCode >= 300 && statusCode < 400) {
+                    var locationHeader = response.headers().firstValue("Location").orElse(null);
+                    if (locationHeader == null) {
+                        LOGGER.warn(
+                                "Redirect response without Location header for URL: {}",
+                                currentUrl);
+                        result.complete(currentUrl);
+                        return;
+                    }
+
+                    currentUrl = HttpRedirectFollower.resolveLocation(currentUrl, locationHeader);
+                    redirectCount++;
+                    LOGGER.debug("Redirected to: {}", currentUrl);
+
+                    if (isResolved.test(currentUrl)) {
+                        LOGGER.debug("Resolved without fetching final destination: {}", currentUrl);
+                        result.complete(currentUrl);
+                    } else if (redirectCount >= HttpRedirectFollower.MAX_REDIRECTS) {
+                        LOGGER.warn(
+                                "Maximum redirects ({}) reached for URL: {}",
+                                HttpRedirectFollower.MAX_REDIRECTS,
+                                originalUrl);
+                        result.complete(currentUrl);
+                    } else {
+                        send(mode.name());
+                    }
+                } else if (statusCode == 200) {
+                    LOGGER.debug("Final destination reached: {}", currentUrl);
+                    result.complete(currentUrl);
+                } else {
+                    LOGGER.warn("Unexpected status code {} for URL: {}", statusCode, currentUrl);
+                    result.complete(currentUrl);
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (result.isDone()) {
+                // Cancelled by the deadline or the caller, nothing to report
+            } else if (error instanceof HostCircuitBreaker.RejectedException) {
+                LOGGER.debug(
+                        "Not following redirects for URL {}: {}", originalUrl, error.getMessage());
+            } else {
+                LOGGER.error("Error following redirects for URL: {}", originalUrl, error);
+            }
+            result.complete(originalUrl); // Return original URL on error
+        }
+    }
+}
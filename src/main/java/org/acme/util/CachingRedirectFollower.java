@@ -0,0 +1,163 @@
+package org.acme.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Size-bounded, TTL-based cache in front of a redirect follower. Only a resolution ending at a URL
+ * {@code isResolved} accepts, the follower's own predicate, is a success. Anything else is a
+ * failure: the original URL, which is how {@link HttpRedirectFollower} reports errors, or an
+ * intermediate one it stopped at after too many redirects or a throttled hop. Failures are kept
+ * for a shorter time than successes so a flaky host is retried soon without hammering it on every
+ * message.
+ *
+ * <p>Misses return the follower's own future, so cancelling it still aborts the resolution; the
+ * result is stored when it completes.
+ */
+public final class CachingRedirectFollower {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingRedirectFollower.class);
+
+    private final Function<String, CompletableFuture<String>> redirectFollower;
+    private final Predicate<String> isResolved;
+    private final int maxEntries;
+    private final long successTtlNanos;
+    private final long failureTtlNanos;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingRedirectFollower(
+            Function<String, CompletableFuture<String>> redirectFollower,
+            Predicate<String> isResolved,
+            int maxEntries,
+            Duration successTtl,
+            Duration failureTtl) {
+        this(redirectFollower, isResolved, maxEntries, successTtl, failureTtl, System::nanoTime);
+    }
+
+    CachingRedirectFollower(
+            Function<String, CompletableFuture<String>> redirectFollower,
+            Predicate<String> isResolved,
+            int maxEntries,
+            Duration successTtl,
+            Duration failureTtl,
+            LongSupplier nanoClock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.redirectFollower = redirectFollower;
+        this.isResolved = isResolved;
+        this.maxEntries = maxEntries;
+        this.successTtlNanos = successTtl.toNanos();
+        this.failureTtlNanos = failureTtl.toNanos();
+        this.nanoClock = nanoClock;
+        // Access order turns the map into an LRU; the eldest entry is evicted once full
+        this.entries =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                        if (size() > CachingRedirectFollower.this.maxEntries) {
+                            evictions.increment();
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+    }
+
+    public CompletableFuture<String> followRedirects(String url) {
+        if (url == null || url.isEmpty()) {
+            return CompletableFuture.completedFuture(url);
+        }
+
+        var cached = lookup(url);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        misses.increment();
+        var resolution = redirectFollower.apply(url);
+        // Stored on a side branch, cancelling the returned future must abort the resolution
+        resolution.thenAccept(finalUrl -> store(url, finalUrl));
+        return resolution;
+    }
+
+    /** Returns the cached resolution of {@code url} without resolving it on a miss. */
+    public String peek(String url) {
+        return url == null ? null : lookup(url);
+    }
+
+    private String lookup(String url) {
+        lock.lock();
+        try {
+            var entry = entries.get(url);
+            if (entry == null) {
+                return null;
+            }
+            if (nanoClock.getAsLong() - entry.expiresAt() >= 0) {
+                entries.remove(url);
+                return null;
+            }
+            return entry.finalUrl();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(String url, String finalUrl) {
+        if (finalUrl == null) {
+            return;
+        }
+        var ttl = isResolved.test(finalUrl) ? successTtlNanos : failureTtlNanos;
+        if (ttl <= 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            entries.put(url, new Entry(finalUrl, nanoClock.getAsLong() + ttl));
+        } finally {
+            lock.unlock();
+        }
+        LOGGER.debug("Cached resolution of {} for {} ms", url, ttl / 1_000_000);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry(String finalUrl, long expiresAt) {}
+}
@@ -0,0 +1,127 @@
+package org.acme.util;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single-flight layer in front of an asynchronous redirect follower: concurrent callers asking for
+ * the same URL share one in-flight resolution instead of each following the redirect chain on
+ * their own. No thread waits for it, every caller gets its own future completed by the shared one.
+ *
+ * <p>Callers joining a resolution already in flight wait at most {@code maxWait}. On timeout, or
+ * when the resolution fails, callers get the original URL back, matching the error contract of
+ * {@link HttpRedirectFollower}. A caller cancelling its future only aborts the resolution when
+ * every other caller of it cancelled as well.
+ */
+public final class CoalescingRedirectFollower {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingRedirectFollower.class);
+
+    private final Function<String, CompletableFuture<String>> redirectFollower;
+    private final Duration maxWait;
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CoalescingRedirectFollower(
+            Function<String, CompletableFuture<String>> redirectFollower, Duration maxWait) {
+        this.redirectFollower = redirectFollower;
+        this.maxWait = maxWait;
+    }
+
+    public CompletableFuture<String> followRedirects(String url) {
+        if (url == null || url.isEmpty()) {
+            return CompletableFuture.completedFuture(url);
+        }
+
+        var flight = new Flight(url);
+        var existing = inFlight.putIfAbsent(url, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.join()
+                    .completeOnTimeout(url, maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        var caller = flight.join();
+        CompletableFuture<String> resolution;
+        try {
+            resolution = redirectFollower.apply(url);
+        } catch (RuntimeException e) {
+            resolution = CompletableFuture.failedFuture(e);
+        }
+        flight.start(resolution);
+        return caller;
+    }
+
+    /** One resolution in flight and the number of callers still waiting for it. */
+    private final class Flight {
+
+        private final String url;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private volatile CompletableFuture<String> resolution;
+
+        Flight(String url) {
+            this.url = url;
+        }
+
+        void start(CompletableFuture<String> resolution) {
+            this.resolution = resolution;
+            resolution.whenComplete(
+                    (finalUrl, error) -> {
+                        inFlight.remove(url, this);
+                        if (error != null) {
+                            // Cancelled because every caller gave up, nobody is left to miss it
+                            if (error instanceof CancellationException
+                                    || error.getCause() instanceof CancellationException) {
+                                LOGGER.debug("Shared resolution of {} cancelled", url);
+                            } else {
+                                LOGGER.warn("Shared resolution failed for URL: {}", url, error);
+                            }
+                            result.complete(url);
+                        } else {
+                            result.complete(finalUrl);
+                        }
+                    });
+            if (waiting.get() == 0) {
+                resolution.cancel(true); // Everybody gave up before it even started
+            }
+        }
+
+        /** A future of its own for a new caller, completed with the shared result. */
+        CompletableFuture<String> join() {
+            waiting.incrementAndGet();
+            var caller = new CompletableFuture<String>();
+            result.thenAccept(caller::complete);
+            caller.whenComplete(
+                    (finalUrl, error) -> {
+                        if (caller.isCancelled() && waiting.decrementAndGet() == 0) {
+                            var started = resolution;
+                            if (started != null) {
+                                LOGGER.debug("Resolution of {} cancelled by all callers", url);
+                                started.cancel(true);
+                            }
+                        }
+                    });
+            return caller;
+        }
+    }
+
+    /** Number of callers that piggybacked on a resolution started by someone else. */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /** Number of distinct URLs currently being resolved. */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,278 @@
+package org.acme.util;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Guards each host redirect resolution talks to with an adaptive concurrency limit and a circuit
+ * breaker, so a degraded host fails fast instead of piling up requests that wait for their
+ * timeout.
+ *
+ * <p>The limit follows AIMD: it grows by one per limit's worth of fast successes and is cut by a
+ * quarter whenever a request fails, times out or takes longer than {@code slowThreshold}.
+ * Requests over the limit are rejected immediately. After {@code failureThreshold} consecutive
+ * failures the circuit opens and every request is rejected for {@code openDuration}; then a single
+ * probe is let through, which closes the circuit on success or opens it again on failure. Requests
+ * sent before the circuit opened never decide it. A request cancelled once it was outstanding for
+ * {@code slowThreshold} or its own timeout, as the redirect followers' deadline does with a hanging
+ * host, counts as a timed out one; cancelled earlier, e.g. because nobody waits for it anymore, it
+ * counts neither as a success nor as a failure of its host.
+ *
+ * <p>Rejections complete with {@link RejectedException}, which the redirect followers turn into
+ * the original URL, i.e. a failed short link.
+ */
+public final class HostCircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostCircuitBreaker.class);
+
+    public record Settings(
+            int initialLimit,
+            int maxLimit,
+            Duration slowThreshold,
+            int failureThreshold,
+            Duration openDuration) {
+
+        public static final Settings DEFAULT =
+                new Settings(16, 64, Duration.ofSeconds(2), 5, Duration.ofSeconds(30));
+    }
+
+    /** Thrown, as the failure of the returned future, for requests that were not sent. */
+    public static final class RejectedException extends RuntimeException {
+
+        RejectedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /** How {@link Host#tryAcquire(long)} answered a request. */
+    private enum Admission {
+        SENT,
+        PROBE, // The one request deciding a half-open circuit
+        REJECTED_OPEN,
+        REJECTED_LIMIT
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        FAILURE,
+        CANCELLED
+    }
+
+    // The followers' deadline cancels a hop a moment before the request's own timeout would fire
+    private static final long TIMEOUT_SLACK_NANOS = Duration.ofMillis(50).toNanos();
+
+    private final Function<HttpRequest, CompletableFuture<HttpResponse<Void>>> sendAsync;
+    private final Settings settings;
+    private final LongSupplier nanoClock;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+    private final LongAdder rejectedOpen = new LongAdder();
+    private final LongAdder rejectedLimit = new LongAdder();
+
+    public HostCircuitBreaker(
+            Function<HttpRequest, CompletableFuture<HttpResponse<Void>>> sendAsync,
+            Settings settings) {
+        this(sendAsync, settings, System::nanoTime);
+    }
+
+    HostCircuitBreaker(
+            Function<HttpRequest, CompletableFuture<HttpResponse<Void>>> sendAsync,
+            Settings settings,
+            LongSupplier nanoClock) {
+        this.sendAsync = sendAsync;
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+    }
+
+    public CompletableFuture<HttpResponse<Void>> sendAsync(HttpRequest request) {
+        var hostName = request.uri().getHost();
+        var host = hosts.computeIfAbsent(hostName, name -> new Host(name, settings.initialLimit()));
+
+        var admission = host.tryAcquire(nanoClock.getAsLong());
+        if (admission == Admission.REJECTED_OPEN) {
+            rejectedOpen.increment();
+            return CompletableFuture.failedFuture(
+                    new RejectedException("Circuit open for " + hostName));
+        } else if (admission == Admission.REJECTED_LIMIT) {
+            rejectedLimit.increment();
+            return CompletableFuture.failedFuture(
+                    new RejectedException("Too many requests in flight to " + hostName));
+        }
+
+        long start = nanoClock.getAsLong();
+        CompletableFuture<HttpResponse<Void>> pending;
+        try {
+            pending = sendAsync.apply(request);
+        } catch (RuntimeException e) {
+            host.release(admission, Outcome.FAILURE, 0, start);
+            throw e;
+        }
+        // Observe the exchange itself and hand it back, so cancelling it still aborts the request
+        pending.whenComplete(
+                (response, error) -> {
+                    long now = nanoClock.getAsLong();
+                    long latency = now - start;
+                    host.release(
+                            admission, outcome(request, response, error, latency), latency, now);
+                });
+        return pending;
+    }
+
+    private Outcome outcome(
+            HttpRequest request, HttpResponse<?> response, Throwable error, long latencyNanos) {
+        if (error instanceof CancellationException) {
+            return timedOut(request, latencyNanos) ? Outcome.FAILURE : Outcome.CANCELLED;
+        }
+        return error == null && !isServerFailure(response.statusCode())
+                ? Outcome.SUCCESS
+                : Outcome.FAILURE;
+    }
+
+    /** Whether a cancelled request had waited long enough to count as timed out. */
+    private boolean timedOut(HttpRequest request, long latencyNanos) {
+        if (latencyNanos >= settings.slowThreshold().toNanos()) {
+            return true;
+        }
+        return request.timeout()
+                .map(timeout -> latencyNanos >= timeout.toNanos() - TIMEOUT_SLACK_NANOS)
+                .orElse(false);
+    }
+
+    private static boolean isServerFailure(int statusCode) {
+        return statusCode >= 500 || statusCode == 429;
+    }
+
+    /** Current concurrency limit for {@code host}, or the initial one if it was never used. */
+    public int limit(String host) {
+        var state = hosts.get(host);
+        return state == null ? settings.initialLimit() : state.limit();
+    }
+
+    public boolean isOpen(String host) {
+        var state = hosts.get(host);
+        return state != null && state.isOpen();
+    }
+
+    /** Requests rejected because their host's circuit was open. */
+    public long rejectedOpen() {
+        return rejectedOpen.sum();
+    }
+
+    /** Requests rejected because their host was at its concurrency limit. */
+    public long rejectedLimit() {
+        return rejectedLimit.sum();
+    }
+
+    /** Limit and circuit of one host; all state changes happen under its monitor. */
+    private final class Host {
+
+        private final String name;
+        private double limit;
+        private int inFlight;
+        private int consecutiveFailures;
+        private State state = State.CLOSED;
+        private long openUntil;
+        private boolean probing;
+
+        Host(String name, int initialLimit) {
+            this.name = name;
+            this.limit = initialLimit;
+        }
+
+        /** Takes a slot for a request, or tells why it is rejected. */
+        synchronized Admission tryAcquire(long now) {
+            if (state == State.OPEN) {
+                if (now - openUntil < 0) {
+                    return Admission.REJECTED_OPEN;
+                }
+                state = State.HALF_OPEN;
+                LOGGER.info("Probing {} after its circuit was open", name);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probing) {
+                    return Admission.REJECTED_OPEN;
+                }
+                probing = true;
+                inFlight++;
+                return Admission.PROBE;
+            }
+            if (inFlight >= (int) limit) {
+                return Admission.REJECTED_LIMIT;
+            }
+            inFlight++;
+            return Admission.SENT;
+        }
+
+        synchronized void release(
+                Admission admission, Outcome outcome, long latencyNanos, long now) {
+            inFlight--;
+            var probe = admission == Admission.PROBE;
+            if (outcome == Outcome.CANCELLED) {
+                if (probe) {
+                    probing = false; // Let the next request probe instead
+                }
+                return;
+            }
+
+            var succeeded = outcome == Outcome.SUCCESS;
+            var slow = latencyNanos > settings.slowThreshold().toNanos();
+            if (succeeded && !slow) {
+                limit = Math.min(settings.maxLimit(), limit + 1 / limit);
+            } else {
+                limit = Math.max(1, limit * 0.75);
+            }
+
+            // Only the probe decides a half-open circuit, older requests may still be finishing
+            if (state == State.HALF_OPEN && !probe) {
+                return;
+            }
+
+            if (succeeded) {
+                consecutiveFailures = 0;
+                if (probe) {
+                    LOGGER.info("Circuit for {} closed again", name);
+                    state = State.CLOSED;
+                    probing = false;
+                }
+                return;
+            }
+
+            consecutiveFailures++;
+            if (probe
+                    || (state == State.CLOSED
+                            && consecutiveFailures >= settings.failureThreshold())) {
+                LOGGER.warn(
+                        "Circuit for {} open for {} after {} consecutive failures",
+                        name,
+                        settings.openDuration(),
+                        consecutiveFailures);
+                state = State.OPEN;
+                openUntil = now + settings.openDuration().toNanos();
+                probing = false;
+            }
+        }
+
+        synchronized int limit() {
+            return (int) limit;
+        }
+
+        synchronized boolean isOpen() {
+            return state == State.OPEN;
+        }
+    }
+}
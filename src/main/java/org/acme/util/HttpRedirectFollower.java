@@ -5,15 +5,44 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import org.acme.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public record HttpRedirectFollower(Function<HttpRequest, HttpResponse<String>> executeRequest) {
+/**
+ * Follows redirects hop by hop until a final URL is reached. Resolution stops as soon as {@code
+ * isResolved} accepts a redirect target, so the final page is never fetched.
+ *
+ * <p>In {@link Mode#HEAD} every hop is a {@code HEAD} request, falling back to {@code GET} for
+ * hosts that reject it, so no response body has to be transferred.
+ */
+public record HttpRedirectFollower(
+        Function<HttpRequest, ? extends HttpResponse<?>> executeRequest,
+        Mode mode,
+        Predicate<String> isResolved,
+        Metrics metrics) {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpRedirectFollower.class);
-    private static final int MAX_REDIRECTS = 5;
+    static final int MAX_REDIRECTS = 5;
     private static final Duration TIMEOUT = Duration.ofSeconds(10);
 
+    public enum Mode {
+        GET, // Fetch every hop, including the final page
+        HEAD // Only fetch headers and stop before the final page
+    }
+
+    public HttpRedirectFollower(Function<HttpRequest, ? extends HttpResponse<?>> executeRequest) {
+        this(executeRequest, Mode.GET, url -> false);
+    }
+
+    public HttpRedirectFollower(
+            Function<HttpRequest, ? extends HttpResponse<?>> executeRequest,
+            Mode mode,
+            Predicate<String> isResolved) {
+        this(executeRequest, mode, isResolved, new Metrics());
+    }
+
     public String followRedirects(String originalUrl) {
         if (originalUrl == null || originalUrl.isEmpty()) {
             return originalUrl;
@@ -24,18 +53,23 @@ public record HttpRedirectFollower(Function<HttpRequest, HttpResponse<String>> e
 
         try {
             while (redirectCount < MAX_REDIRECTS) {
-                LOGGER.debug("Following redirect #{}: {}", redirectCount + 1, currentUrl);
+                if (redirectCount > 0 && isResolved.test(currentUrl)) {
+                    LOGGER.debug("Resolved without fetching final destination: {}", currentUrl);
+                    break;
+                }
 
-                var request =
-                        HttpRequest.newBuilder()
-                                .uri(URI.create(currentUrl))
-                                .timeout(TIMEOUT)
-                                .GET()
-                                .build();
+                LOGGER.debug("Following redirect #{}: {}", redirectCount + 1, currentUrl);
 
-                var response = executeRequest.apply(request);
+                var response = executeRequest.apply(request(currentUrl, mode.name(), TIMEOUT));
                 int statusCode = response.statusCode();
 
+                if (mode == Mode.HEAD && (statusCode == 405 || statusCode == 501)) {
+                    LOGGER.debug(
+                            "HEAD rejected with {}, retrying with GET: {}", statusCode, currentUrl);
+                    response = executeRequest.apply(request(currentUrl, Mode.GET.name(), TIMEOUT));
+                    statusCode = response.statusCode();
+                }
+
                 // Check if it's a redirect
                 if (statusCode >= 300 && statusCode < 400) {
                     var locationHeader = response.headers().firstValue("Location").orElse(null);
@@ -46,14 +80,7 @@ public record HttpRedirectFollower(Function<HttpRequest, HttpResponse<String>> e
                         break;
                     }
 
-                    // Handle relative URLs
-                    if (locationHeader.startsWith("/")) {
-                        var baseUri = URI.create(currentUrl);
-                        locationHeader =
-                                baseUri.getScheme() + "://" + baseUri.getHost() + locationHeader;
-                    }
-
-                    currentUrl = locationHeader;
+                    currentUrl = resolveLocation(currentUrl, locationHeader);
                     redirectCount++;
                     LOGGER.debug("Redirected to: {}", currentUrl);
                 } else if (statusCode == 200) {
@@ -66,7 +93,8 @@ public record HttpRedirectFollower(Function<HttpRequest, HttpResponse<String>> e
                 }
             }
 
-            if (redirectCount >= MAX_REDIRECTS) {
+            // The last hop may well have landed on the product, that is no failure
+            if (redirectCount >= MAX_REDIRECTS && !isResolved.test(currentUrl)) {
                 LOGGER.warn(
                         "Maximum redirects ({}) reached for URL: {}", MAX_REDIRECTS, originalUrl);
             }
@@ -74,8 +102,27 @@ public record HttpRedirectFollower(Function<HttpRequest, HttpResponse<String>> e
         } catch (Exception e) {
             LOGGER.error("Error following redirects for URL: {}", originalUrl, e);
             return originalUrl; // Return original URL on error
+        } finally {
+            metrics.redirectHops(redirectCount);
         }
 
         return currentUrl;
     }
+
+    static HttpRequest request(String url, String method, Duration timeout) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(timeout)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    /** Turns a Location header into an absolute URL, handling relative redirects. */
+    static String resolveLocation(String currentUrl, String location) {
+        if (location.startsWith("/")) {
+            var baseUri = URI.create(currentUrl);
+            return baseUri.getScheme() + "://" + baseUri.getHost() + location;
+        }
+        return location;
+    }
 }
@@ -0,0 +1,207 @@
+package org.acme.util;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.Security;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link HttpClient} redirect resolution runs on, tuned for many small requests to a handful
+ * of hosts: HTTP/2 when the host offers it, idle connections kept open per host, callbacks on
+ * virtual threads, and optionally longer DNS caching. {@link #warmUp()} opens connections to the
+ * short-link hosts before the first link arrives.
+ *
+ * <p>The JDK client pools connections internally without reporting on it, so handshakes and
+ * reuses are approximated from the TLS sessions responses arrive on: a session seen for the first
+ * time counts as a handshake, a known one as a reused connection. A session resumed on a new
+ * connection therefore counts as reuse, and the least recently seen sessions are forgotten beyond
+ * {@value #MAX_TRACKED_SESSIONS}, counting as a handshake if they show up again.
+ *
+ * <p>The pool and DNS settings are JVM-wide, {@link #configureJdk(Settings)} applies them once at
+ * startup.
+ */
+public final class ResolverTransport implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolverTransport.class);
+    private static final int MAX_TRACKED_SESSIONS = 10_000;
+
+    public record Settings(
+            HttpClient.Version version,
+            Duration connectTimeout,
+            Duration keepAlive,
+            int connectionPoolSize,
+            Duration dnsCacheTtl,
+            List<String> warmUpHosts) {
+
+        /** HTTP/2, 10s connect timeout, 2 minutes keep-alive and the Amazon short-link hosts. */
+        public static final Settings DEFAULT =
+                new Settings(
+                        HttpClient.Version.HTTP_2,
+                        Duration.ofSeconds(10),
+                        Duration.ofMinutes(2),
+                        0,
+                        null,
+                        List.of("a.co", "amzn.to", "amzn.eu", "www.amazon.com"));
+    }
+
+    private final Settings settings;
+    private final ExecutorService executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile HttpClient httpClient;
+    private final ReentrantLock sessionsLock = new ReentrantLock();
+    private final LinkedHashMap<String, Boolean> sessions =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_TRACKED_SESSIONS;
+                }
+            };
+    private final LongAdder handshakes = new LongAdder();
+    private final LongAdder reusedConnections = new LongAdder();
+    private final LongAdder http2Responses = new LongAdder();
+
+    public ResolverTransport(Settings settings) {
+        this.settings = settings;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Built on first use, normally by the warm-up right after the start: setting up TLS takes a
+     * noticeable part of the startup, and the bot can start polling while another thread does it.
+     */
+    private HttpClient httpClient() {
+        var client = httpClient;
+        if (client != null) {
+            return client;
+        }
+        lock.lock();
+        try {
+            if (httpClient == null) {
+                httpClient =
+                        HttpClient.newBuilder()
+                                .version(settings.version())
+                                .followRedirects(HttpClient.Redirect.NEVER)
+                                .connectTimeout(settings.connectTimeout())
+                                .executor(executor)
+                                .build();
+            }
+            return httpClient;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Whether the {@link HttpClient} was built, i.e. a request was sent. */
+    boolean isStarted() {
+        return httpClient != null;
+    }
+
+    /**
+     * The connection pool and the DNS cache are configured through JVM-wide properties that are
+     * read once, so this has to run at startup, before any {@link HttpClient} is built or any name
+     * looked up. {@code connectionPoolSize} bounds the idle HTTP/1.1 connections of all clients
+     * together, not per host.
+     */
+    public static void configureJdk(Settings settings) {
+        var keepAliveSeconds = Long.toString(settings.keepAlive().toSeconds());
+        System.setProperty("jdk.httpclient.keepalive.timeout", keepAliveSeconds);
+        System.setProperty("jdk.httpclient.keepalive.timeout.h2", keepAliveSeconds);
+        if (settings.connectionPoolSize() > 0) {
+            System.setProperty(
+                    "jdk.httpclient.connectionPoolSize",
+                    Integer.toString(settings.connectionPoolSize()));
+        }
+        if (settings.dnsCacheTtl() != null) {
+            Security.setProperty(
+                    "networkaddress.cache.ttl", Long.toString(settings.dnsCacheTtl().toSeconds()));
+        }
+    }
+
+    /** Sends a request without reading its body, counting how its connection was obtained. */
+    public CompletableFuture<HttpResponse<Void>> sendAsync(HttpRequest request) {
+        var exchange = httpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        // Counted on a side branch, cancelling the returned future must abort the exchange
+        exchange.thenAccept(this::countConnection);
+        return exchange;
+    }
+
+    private void countConnection(HttpResponse<?> response) {
+        if (response.version() == HttpClient.Version.HTTP_2) {
+            http2Responses.increment();
+        }
+        response.sslSession()
+                .ifPresent(
+                        session -> {
+                            var id = HexFormat.of().formatHex(session.getId());
+                            boolean known;
+                            sessionsLock.lock();
+                            try {
+                                known = sessions.put(id, Boolean.TRUE) != null;
+                            } finally {
+                                sessionsLock.unlock();
+                            }
+                            (known ? reusedConnections : handshakes).increment();
+                        });
+    }
+
+    /** Opens a connection to each warm-up host in the background; failures are only logged. */
+    public CompletableFuture<Void> warmUp() {
+        return CompletableFuture.allOf(
+                settings.warmUpHosts().stream()
+                        .map(this::warmUp)
+                        .toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> warmUp(String host) {
+        var request =
+                HttpRedirectFollower.request(
+                        "https://" + host + "/", "HEAD", settings.connectTimeout());
+        return sendAsync(request)
+                .handle(
+                        (response, error) -> {
+                            logWarmUp(host, response, error);
+                            return null;
+                        });
+    }
+
+    private static void logWarmUp(String host, HttpResponse<?> response, Throwable error) {
+        if (error != null) {
+            LOGGER.warn("Could not warm up connection to {}: {}", host, error.toString());
+        } else {
+            LOGGER.debug("Warmed up {} connection to {}", response.version(), host);
+        }
+    }
+
+    public long handshakes() {
+        return handshakes.sum();
+    }
+
+    public long reusedConnections() {
+        return reusedConnections.sum();
+    }
+
+    public long http2Responses() {
+        return http2Responses.sum();
+    }
+
+    @Override
+    public void close() {
+        var client = httpClient;
+        if (client != null) {
+            client.close();
+        }
+        executor.close();
+    }
+}
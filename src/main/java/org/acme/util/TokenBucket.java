@@ -0,0 +1,51 @@
+package org.acme.util;
+
+import java.time.Duration;
+
+/**
+ * Classic token bucket on a nanosecond clock: refills at {@code rate} tokens per {@code period}
+ * up to {@code burst} tokens. Not thread-safe; callers guard it with their own lock.
+ */
+public final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double rate, Duration period, int burst, long now) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.tokensPerNano = rate / period.toNanos();
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    /** Nanoseconds until a token is available, 0 when one can be taken right away. */
+    public long nanosUntilAvailable(long now) {
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /** Takes a token; callers check {@link #nanosUntilAvailable(long)} first. */
+    public void take(long now) {
+        refill(now);
+        tokens -= 1;
+    }
+
+    /** Whether the bucket is back at its burst size, i.e. it carries no state worth keeping. */
+    public boolean isFull(long now) {
+        refill(now);
+        return tokens >= burst;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - refilledAt;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+}
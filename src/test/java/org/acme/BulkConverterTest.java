@@ -0,0 +1,146 @@
+package org.acme;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.acme.model.LinkType;
+import org.acme.model.ProcessedLink;
+import org.junit.jupiter.api.Test;
+
+class BulkConverterTest {
+
+    static ProcessedLink converted(String url) {
+        var asin = "B0" + url.substring(url.length() - 8);
+        return ProcessedLink.success(
+                url,
+                "https://www.amazon.es/dp/" + asin,
+                asin,
+                "amazon.es",
+                LinkType.AMAZON_SHORT,
+                "https://www.amazon.es/dp/" + asin + "?tag=test-21");
+    }
+
+    static BufferedReader input(String text) {
+        return new BufferedReader(new StringReader(text));
+    }
+
+    @Test
+    void shouldWriteRowsInInputOrderWhenLaterLinksResolveFirst() throws Exception {
+        // Given
+        var slow = new CompletableFuture<ProcessedLink>();
+        var converter =
+                new BulkConverter(
+                        url -> url.contains("a.co"),
+                        url ->
+                                url.endsWith("00000001")
+                                        ? slow
+                                        : CompletableFuture.completedFuture(converted(url)),
+                        4);
+        var output = new StringWriter();
+
+        // When
+        slow.completeAsync(
+                () -> converted("https://a.co/d/00000001"),
+                CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+        var summary =
+                converter.convert(
+                        input(
+                                "https://a.co/d/00000001\n"
+                                        + "sin enlace\n"
+                                        + "mira https://a.co/d/00000002 y https://example.com/x\n"),
+                        output,
+                        BulkConverter.Format.CSV);
+
+        // Then
+        assertThat(summary).isEqualTo(new BulkConverter.Summary(3, 3, 2));
+        assertThat(output.toString())
+                .isEqualTo(
+                        "line,originalUrl,type,processed,asin,domain,finalUrl,affiliateUrl\n"
+                                + "1,https://a.co/d/00000001,AMAZON_SHORT,true,B000000001,"
+                                + "amazon.es,https://www.amazon.es/dp/B000000001,"
+                                + "https://www.amazon.es/dp/B000000001?tag=test-21\n"
+                                + "3,https://a.co/d/00000002,AMAZON_SHORT,true,B000000002,"
+                                + "amazon.es,https://www.amazon.es/dp/B000000002,"
+                                + "https://www.amazon.es/dp/B000000002?tag=test-21\n"
+                                + "3,https://example.com/x,NON_AMAZON,false,,,,\n");
+    }
+
+    @Test
+    void shouldResolveAtMostParallelismLinksAtOnce() throws Exception {
+        // Given
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        var converter =
+                new BulkConverter(
+                        url -> true,
+                        url -> {
+                            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                            return CompletableFuture.supplyAsync(
+                                    () -> {
+                                        inFlight.decrementAndGet();
+                                        return converted(url);
+                                    },
+                                    CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS));
+                        },
+                        3);
+        var lines = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            lines.append("https://a.co/d/%08d%n".formatted(i));
+        }
+
+        // When
+        var summary =
+                converter.convert(
+                        input(lines.toString()), new StringWriter(), BulkConverter.Format.JSONL);
+
+        // Then
+        assertThat(summary.converted()).isEqualTo(20);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void shouldWriteOneJsonObjectPerLink() throws Exception {
+        // Given
+        var converter =
+                new BulkConverter(
+                        url -> true,
+                        url -> CompletableFuture.completedFuture(converted(url)),
+                        2);
+        var output = new StringWriter();
+
+        // When
+        converter.convert(
+                input("https://a.co/d/00000007\n"), output, BulkConverter.Format.JSONL);
+
+        // Then
+        assertThat(output.toString())
+                .isEqualTo(
+                        "{\"line\":1,\"originalUrl\":\"https://a.co/d/00000007\","
+                                + "\"type\":\"AMAZON_SHORT\",\"processed\":true,"
+                                + "\"asin\":\"B000000007\",\"domain\":\"amazon.es\","
+                                + "\"finalUrl\":\"https://www.amazon.es/dp/B000000007\","
+                                + "\"affiliateUrl\":"
+                                + "\"https://www.amazon.es/dp/B000000007?tag=test-21\"}\n");
+    }
+
+    @Test
+    void shouldReadBareLinksFromSpreadsheetCells() {
+        assertThat(BulkConverter.urls("  www.amazon.es/dp/B08L5TNJHG "))
+                .containsExactly("https://www.amazon.es/dp/B08L5TNJHG");
+        assertThat(BulkConverter.urls("Labial rojo")).isEmpty();
+    }
+
+    @Test
+    void shouldQuoteCsvFieldsWithSeparators() {
+        assertThat(BulkConverter.csvField("https://amazon.es/s?k=a,b"))
+                .isEqualTo("\"https://amazon.es/s?k=a,b\"");
+        assertThat(BulkConverter.csvField("say \"hi\"")).isEqualTo("\"say \"\"hi\"\"\"");
+        assertThat(BulkConverter.csvField(null)).isEmpty();
+        assertThat(BulkConverter.csvField(LinkType.NON_AMAZON)).isEqualTo("NON_AMAZON");
+    }
+}
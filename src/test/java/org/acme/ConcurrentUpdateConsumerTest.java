@@ -0,0 +1,166 @@
+package org.acme;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+class ConcurrentUpdateConsumerTest {
+
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    List<Integer> handled = new CopyOnWriteArrayList<>();
+
+    static Update update(int updateId, long chatId) throws Exception {
+        return OBJECT_MAPPER.readValue(
+                """
+                {"update_id": %d,
+                 "message": {"message_id": %d, "date": 1760659200, "text": "hola",
+                             "chat": {"id": %d, "type": "private"}}}
+                """
+                        .formatted(updateId, updateId, chatId),
+                Update.class);
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void shouldHandleUpdatesOfAChatInOrder() throws Exception {
+        // Given
+        try (var consumer =
+                new ConcurrentUpdateConsumer(
+                        update -> {
+                            // Earlier updates take longer, run in parallel they would finish last
+                            sleep(20 - update.getUpdateId());
+                            handled.add(update.getUpdateId());
+                        },
+                        64)) {
+
+            // When
+            for (int id = 1; id <= 10; id++) {
+                consumer.dispatch(update(id, 42));
+            }
+
+            // Then
+            await().until(() -> handled.size() == 10);
+            assertThat(handled).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        }
+    }
+
+    @Test
+    void shouldNotHoldBackOtherChatsBehindASlowOne() throws Exception {
+        // Given
+        var slowChatReleased = new CountDownLatch(1);
+        try (var consumer =
+                new ConcurrentUpdateConsumer(
+                        update -> {
+                            if (update.getMessage().getChatId() == 1) {
+                                awaitUninterruptibly(slowChatReleased);
+                            }
+                            handled.add(update.getUpdateId());
+                        },
+                        64)) {
+
+            // When
+            consumer.dispatch(update(1, 1));
+            consumer.dispatch(update(2, 2));
+
+            // Then
+            await().until(() -> handled.contains(2));
+            assertThat(handled).containsExactly(2);
+            await().until(() -> consumer.activeChats() == 1);
+            slowChatReleased.countDown();
+        }
+    }
+
+    @Test
+    void shouldBlockDispatchOnceMaxInFlightIsReached() throws Exception {
+        // Given
+        var release = new CountDownLatch(1);
+        try (var consumer =
+                new ConcurrentUpdateConsumer(
+                        update -> {
+                            awaitUninterruptibly(release);
+                            handled.add(update.getUpdateId());
+                        },
+                        2)) {
+            consumer.dispatch(update(1, 1));
+            consumer.dispatch(update(2, 2));
+            var third = update(3, 3);
+
+            // When
+            var dispatched = CompletableFuture.runAsync(() -> consumer.dispatch(third));
+
+            // Then
+            sleep(100);
+            assertThat(dispatched).isNotCompleted();
+            release.countDown();
+            assertThat(dispatched).succeedsWithin(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void shouldHandleQueuedUpdatesBeforeClosing() throws Exception {
+        // Given
+        var consumer =
+                new ConcurrentUpdateConsumer(
+                        update -> {
+                            sleep(20);
+                            handled.add(update.getUpdateId());
+                        },
+                        64);
+        for (int id = 1; id <= 5; id++) {
+            consumer.dispatch(update(id, 42));
+        }
+
+        // When
+        consumer.close();
+
+        // Then
+        assertThat(handled).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void shouldKeepHandlingAChatAfterAFailure() throws Exception {
+        // Given
+        try (var consumer =
+                new ConcurrentUpdateConsumer(
+                        update -> {
+                            if (update.getUpdateId() == 1) {
+                                throw new AssertionError("boom");
+                            }
+                            handled.add(update.getUpdateId());
+                        },
+                        1)) {
+
+            // When
+            consumer.dispatch(update(1, 42));
+            consumer.dispatch(update(2, 42));
+
+            // Then
+            await().until(() -> handled.contains(2));
+        }
+    }
+
+    static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
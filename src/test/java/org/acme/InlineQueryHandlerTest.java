@@ -0,0 +1,140 @@
+package org.acme;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.acme.model.LinkType;
+import org.acme.model.ProcessedLink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.inputmessagecontent.InputTextMessageContent;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+class InlineQueryHandlerTest {
+
+    List<AnswerInlineQuery> answers = new CopyOnWriteArrayList<>();
+    List<String> processed = new CopyOnWriteArrayList<>();
+
+    InlineQueryHandler handler =
+            new InlineQueryHandler(
+                    (TelegramClient)
+                            Proxy.newProxyInstance(
+                                    TelegramClient.class.getClassLoader(),
+                                    new Class<?>[] {TelegramClient.class},
+                                    (proxy, method, args) -> {
+                                        answers.add((AnswerInlineQuery) args[0]);
+                                        return CompletableFuture.completedFuture(true);
+                                    }),
+                    url -> {
+                        processed.add(url);
+                        return ProcessedLink.success(
+                                url,
+                                "https://amazon.com/dp/B07XYZ1234",
+                                "B07XYZ1234",
+                                "amazon.com",
+                                LinkType.AMAZON_STANDARD,
+                                "https://amazon.com/dp/B07XYZ1234?tag=test-20");
+                    },
+                    url -> url.equals("https://a.co/d/cached"),
+                    links -> links.stream().map(link -> "💰 " + link.affiliateUrl()).toList(),
+                    Duration.ofMillis(100),
+                    Duration.ofMinutes(5));
+
+    static InlineQuery query(String id, long userId, String query) {
+        return InlineQuery.builder()
+                .id(id)
+                .from(User.builder().id(userId).firstName("Ube").isBot(false).build())
+                .query(query)
+                .offset("")
+                .build();
+    }
+
+    static String answerText(AnswerInlineQuery answer) {
+        var article = (InlineQueryResultArticle) answer.getResults().getFirst();
+        return ((InputTextMessageContent) article.getInputMessageContent()).getMessageText();
+    }
+
+    @Test
+    void shouldAnswerProductUrlRightAway() {
+        // When
+        handler.handle(query("q1", 7, "https://amazon.com/dp/B07XYZ1234"));
+
+        // Then
+        assertThat(answers).hasSize(1);
+        assertThat(answers.getFirst().getInlineQueryId()).isEqualTo("q1");
+        assertThat(answers.getFirst().getCacheTime()).isEqualTo(300);
+        assertThat(answerText(answers.getFirst()))
+                .isEqualTo("💰 https://amazon.com/dp/B07XYZ1234?tag=test-20");
+    }
+
+    @Test
+    void shouldAnswerCachedShortLinkRightAway() {
+        // When
+        handler.handle(query("q1", 7, "https://a.co/d/cached"));
+
+        // Then
+        assertThat(answers).hasSize(1);
+        assertThat(processed).containsExactly("https://a.co/d/cached");
+    }
+
+    @Test
+    void shouldAnswerInvalidQueryEmptyWithoutProcessing() {
+        // When
+        handler.handle(query("q1", 7, "https://a.co/"));
+
+        // Then
+        assertThat(answers).hasSize(1);
+        assertThat(answers.getFirst().getResults()).isEmpty();
+        assertThat(processed).isEmpty();
+    }
+
+    @Test
+    void shouldOnlyResolveLatestShortLinkOfUser() {
+        // When
+        handler.handle(query("q1", 7, "https://a.co/d/ab"));
+        handler.handle(query("q2", 7, "https://a.co/d/abc"));
+        handler.handle(query("q3", 8, "https://a.co/d/xyz"));
+
+        // Then
+        await().until(() -> answers.size() == 2);
+        assertThat(processed).containsExactlyInAnyOrder("https://a.co/d/abc", "https://a.co/d/xyz");
+        assertThat(answers)
+                .extracting(AnswerInlineQuery::getInlineQueryId)
+                .containsExactlyInAnyOrder("q2", "q3");
+        assertThat(handler.superseded()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropPendingShortLinkWhenTheUserAnswersRightAway() {
+        // Given
+        handler.handle(query("q1", 7, "https://a.co/d/abc"));
+
+        // When
+        handler.handle(query("q2", 7, "https://amazon.com/dp/B07XYZ1234"));
+
+        // Then
+        await().until(() -> handler.superseded() == 1);
+        assertThat(answers)
+                .extracting(AnswerInlineQuery::getInlineQueryId)
+                .containsExactly("q2");
+        assertThat(processed).containsExactly("https://amazon.com/dp/B07XYZ1234");
+        assertThat(handler.answered()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {"", "https://", "https://a.co", "https://a.co/", "https://a.co/d/", "hello"})
+    void shouldRejectIncompleteQueries(String query) {
+        assertThat(InlineQueryHandler.amazonUrl(query)).isNull();
+    }
+}
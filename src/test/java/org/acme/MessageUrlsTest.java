@@ -0,0 +1,91 @@
+package org.acme;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.MessageEntity;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+class MessageUrlsTest {
+
+    static Message message(String text, List<MessageEntity> entities) {
+        var message = new Message();
+        message.setText(text);
+        message.setEntities(entities);
+        return message;
+    }
+
+    static MessageEntity entity(String type, String text, String part) {
+        return MessageEntity.builder()
+                .type(type)
+                .offset(text.indexOf(part))
+                .length(part.length())
+                .build();
+    }
+
+    @Test
+    void shouldReadUrlEntitiesWithoutTrailingPunctuation() {
+        // Given
+        var text = "💄 Deal: https://a.co/d/abc, and amzn.to/xyz!";
+        var message =
+                message(
+                        text,
+                        List.of(
+                                entity("url", text, "https://a.co/d/abc"),
+                                entity("url", text, "amzn.to/xyz")));
+
+        // When
+        var urls = MessageUrls.of(message);
+
+        // Then
+        assertThat(urls).containsExactly("https://a.co/d/abc", "https://amzn.to/xyz");
+    }
+
+    @Test
+    void shouldReadHiddenTextLinks() {
+        // Given
+        var text = "Buy it here before it sells out";
+        var textLink =
+                MessageEntity.builder()
+                        .type("text_link")
+                        .offset(7)
+                        .length(4)
+                        .url("https://amazon.com/dp/B07XYZ1234")
+                        .build();
+        var message = message(text, List.of(entity("bold", text, "Buy"), textLink));
+
+        // When
+        var urls = MessageUrls.of(message);
+
+        // Then
+        assertThat(urls).containsExactly("https://amazon.com/dp/B07XYZ1234");
+    }
+
+    @Test
+    void shouldScanTextWhenThereAreNoEntities() {
+        // Given
+        var message = message("Check https://amazon.com/dp/B07XYZ1234 out", null);
+
+        // When
+        var urls = MessageUrls.of(message);
+
+        // Then
+        assertThat(urls).containsExactly("https://amazon.com/dp/B07XYZ1234");
+    }
+
+    @Test
+    void shouldIgnoreEntitiesOutsideTheText() {
+        // Given
+        var message =
+                message(
+                        "short",
+                        List.of(MessageEntity.builder().type("url").offset(3).length(10).build()));
+
+        // When
+        var urls = MessageUrls.of(message);
+
+        // Then
+        assertThat(urls).isEmpty();
+    }
+}
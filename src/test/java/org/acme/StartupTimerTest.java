@@ -0,0 +1,31 @@
+package org.acme;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class StartupTimerTest {
+
+    @Test
+    void shouldRecordOnlyTheFirstUpdateHandled() {
+        // Given
+        var now = new AtomicLong(10_000);
+        var timer = new StartupTimer(8_500, now::get);
+        var handled = new ArrayList<String>();
+        var handler = timer.timeFirstUpdate(handled::add);
+        var firstBeforeAnyUpdate = timer.firstUpdateSeconds();
+
+        // When
+        handler.accept("first");
+        now.addAndGet(5_000);
+        handler.accept("second");
+
+        // Then
+        assertThat(firstBeforeAnyUpdate).isNaN();
+        assertThat(handled).hasSize(2);
+        assertThat(timer.firstUpdateSeconds()).isEqualTo(1.5);
+        assertThat(timer.elapsedMillis()).isEqualTo(6_500);
+    }
+}
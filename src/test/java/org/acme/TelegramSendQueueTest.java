@@ -0,0 +1,88 @@
+package org.acme;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+class TelegramSendQueueTest {
+
+    static final TelegramSendQueue.RateLimits FAST =
+            new TelegramSendQueue.RateLimits(1000, 100, 6000);
+
+    List<String> sent = new CopyOnWriteArrayList<>();
+
+    TelegramClient client(Supplier<CompletableFuture<?>> reply) {
+        return (TelegramClient)
+                Proxy.newProxyInstance(
+                        TelegramClient.class.getClassLoader(),
+                        new Class<?>[] {TelegramClient.class},
+                        (proxy, method, args) -> {
+                            var message = (SendMessage) args[0];
+                            sent.add(message.getChatId() + ":" + message.getText());
+                            return reply.get();
+                        });
+    }
+
+    static SendMessage message(String chatId, String text) {
+        return SendMessage.builder().chatId(chatId).text(text).build();
+    }
+
+    @Test
+    void shouldSendMessagesOfAChatInOrder() {
+        // Given
+        try (var queue =
+                new TelegramSendQueue(
+                        client(() -> CompletableFuture.completedFuture(null)),
+                        10,
+                        TelegramSendQueue.OverflowPolicy.DROP_NEWEST,
+                        FAST)) {
+
+            // When
+            queue.submit(message("1", "first"));
+            queue.submit(message("-2", "group"));
+            queue.submit(message("1", "second"));
+
+            // Then
+            await().until(() -> queue.sent() == 3);
+            assertThat(sent).containsSubsequence("1:first", "1:second").contains("-2:group");
+            assertThat(queue.queueDepth()).isZero();
+            assertThat(queue.maxSendLatencyMillis()).isGreaterThanOrEqualTo(0);
+        }
+    }
+
+    @Test
+    void shouldRejectNewestMessageWhenFull() {
+        // Given a reply that does not arrive yet, so the chat stays busy
+        var reply = new CompletableFuture<Void>();
+        try (var queue =
+                new TelegramSendQueue(
+                        client(() -> reply),
+                        2,
+                        TelegramSendQueue.OverflowPolicy.DROP_NEWEST,
+                        FAST)) {
+            queue.submit(message("1", "in flight"));
+            await().until(() -> sent.size() == 1);
+
+            // When
+            var accepted =
+                    List.of(
+                            queue.submit(message("1", "queued 1")),
+                            queue.submit(message("1", "queued 2")),
+                            queue.submit(message("1", "rejected")));
+
+            // Then
+            assertThat(accepted).containsExactly(true, true, false);
+            assertThat(queue.queueDepth()).isEqualTo(2);
+            assertThat(queue.dropped()).isEqualTo(1);
+            reply.complete(null);
+        }
+    }
+}
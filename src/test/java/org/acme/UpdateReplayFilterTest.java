@@ -0,0 +1,95 @@
+package org.acme;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UpdateReplayFilterTest {
+
+    @TempDir Path directory;
+
+    @Test
+    void shouldIgnoreUpdateDeliveredTwice() {
+        // Given
+        var filter = UpdateReplayFilter.inMemory();
+        filter.firstDelivery(100);
+        filter.firstDelivery(102);
+
+        // When
+        var late = filter.firstDelivery(101);
+        var again = filter.firstDelivery(102);
+
+        // Then
+        assertThat(late).isTrue();
+        assertThat(again).isFalse();
+        assertThat(filter.replays()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIgnoreUpdatesHandledBeforeRestart() throws Exception {
+        // Given
+        var file = directory.resolve("state/last-update-id");
+        var beforeRestart = UpdateReplayFilter.open(file);
+        beforeRestart.firstDelivery(100);
+        beforeRestart.firstDelivery(101);
+        beforeRestart.close();
+
+        // When
+        var afterRestart = UpdateReplayFilter.open(file);
+
+        // Then
+        assertThat(Files.readString(file)).isEqualTo("100\n101\n");
+        assertThat(afterRestart.firstDelivery(100)).isFalse();
+        assertThat(afterRestart.firstDelivery(101)).isFalse();
+        assertThat(afterRestart.firstDelivery(102)).isTrue();
+    }
+
+    @Test
+    void shouldAcceptLowerIdsAfterTelegramStartsNumberingAgain() {
+        // Given
+        var file = directory.resolve("last-update-id");
+        var beforeRestart = UpdateReplayFilter.open(file);
+        beforeRestart.firstDelivery(500_000);
+        beforeRestart.close();
+
+        // When
+        var afterRestart = UpdateReplayFilter.open(file);
+
+        // Then
+        assertThat(afterRestart.firstDelivery(1_234)).isTrue();
+        assertThat(afterRestart.firstDelivery(500_000)).isFalse();
+    }
+
+    @Test
+    void shouldWriteRecentIdsWithoutWaitingForClose() throws Exception {
+        // Given
+        var file = directory.resolve("last-update-id");
+        var filter = UpdateReplayFilter.open(file, Duration.ofMillis(10));
+
+        // When
+        filter.firstDelivery(7);
+
+        // Then
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(Files.readString(file)).isEqualTo("7\n"));
+        filter.close();
+    }
+
+    @Test
+    void shouldStartEmptyWhenFileIsUnreadable() throws Exception {
+        // Given
+        var file = directory.resolve("last-update-id");
+        Files.writeString(file, "not a number");
+
+        // When
+        var filter = UpdateReplayFilter.open(file);
+
+        // Then
+        assertThat(filter.firstDelivery(1)).isTrue();
+    }
+}
@@ -0,0 +1,152 @@
+package org.acme;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+class WebhookServerTest {
+
+    static final String SECRET = "s3cr3t";
+
+    List<Update> received = new CopyOnWriteArrayList<>();
+    HttpClient client = HttpClient.newHttpClient();
+    WebhookServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server =
+                WebhookServer.start(
+                        new InetSocketAddress("127.0.0.1", 0), "/telegram", SECRET, received::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        client.close();
+    }
+
+    @Test
+    void shouldAcceptRecordedUpdate() throws Exception {
+        // Given
+        var body = recordedUpdate("message.json");
+
+        // When
+        var response = post(SECRET, body);
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(200);
+        await().until(() -> received.size() == 1);
+        var update = received.getFirst();
+        assertThat(update.getUpdateId()).isEqualTo(912345678);
+        assertThat(update.getMessage().getChatId()).isEqualTo(123456789L);
+        assertThat(update.getMessage().getText()).contains("https://www.amazon.es/dp/B08L5TNJHG");
+    }
+
+    @Test
+    void shouldRejectWrongSecretToken() throws Exception {
+        // When
+        var response = post("guess", recordedUpdate("message.json"));
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(401);
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void shouldRejectMalformedUpdate() throws Exception {
+        // When
+        var response = post(SECRET, "{\"update_id\": ".getBytes());
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void shouldRouteEachPathToItsBot() throws Exception {
+        // Given
+        List<Update> secondBot = new CopyOnWriteArrayList<>();
+        try (var shared =
+                WebhookServer.start(
+                        new InetSocketAddress("127.0.0.1", 0),
+                        SECRET,
+                        Map.of("/telegram", received::add, "/telegram/2", secondBot::add))) {
+
+            // When
+            var response =
+                    post(shared.port(), "/telegram/2", SECRET, recordedUpdate("message.json"));
+
+            // Then
+            assertThat(response.statusCode()).isEqualTo(200);
+            await().until(() -> secondBot.size() == 1);
+            assertThat(received).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldHandOverTheUpdateBeforeAcknowledgingIt() throws Exception {
+        // Given
+        var handedOver = new AtomicBoolean();
+        try (var blocking =
+                WebhookServer.start(
+                        new InetSocketAddress("127.0.0.1", 0),
+                        "/telegram",
+                        SECRET,
+                        update -> {
+                            sleep(200);
+                            handedOver.set(true);
+                        })) {
+
+            // When
+            var response =
+                    post(blocking.port(), "/telegram", SECRET, recordedUpdate("message.json"));
+
+            // Then
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(handedOver).isTrue();
+        }
+    }
+
+    HttpResponse<Void> post(String secretToken, byte[] body) throws Exception {
+        return post(server.port(), "/telegram", secretToken, body);
+    }
+
+    HttpResponse<Void> post(int port, String path, String secretToken, byte[] body)
+            throws Exception {
+        var request =
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                        .header(WebhookServer.SECRET_TOKEN_HEADER, secretToken)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                        .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static byte[] recordedUpdate(String name) throws Exception {
+        try (InputStream in = WebhookServerTest.class.getResourceAsStream("/updates/" + name)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.acme.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+
+    @Test
+    void shouldCountValuesInTheFirstBucketThatHoldsThem() {
+        // Given
+        var histogram = Histogram.exponential(16, 4); // 16, 32, 64, 128
+
+        // When
+        histogram.record(1);
+        histogram.record(16);
+        histogram.record(17);
+        histogram.record(100);
+        histogram.record(1_000);
+
+        // Then
+        assertThat(histogram.upperBounds()).containsExactly(16, 32, 64, 128);
+        assertThat(histogram.cumulativeCounts()).containsExactly(2, 3, 3, 4, 5);
+        assertThat(histogram.count()).isEqualTo(5);
+        assertThat(histogram.sum()).isEqualTo(1_134);
+    }
+
+    @Test
+    void shouldHaveOneBucketPerSmallCount() {
+        // Given
+        var histogram = Histogram.linear(2);
+
+        // When
+        histogram.record(0);
+        histogram.record(2);
+        histogram.record(2);
+
+        // Then
+        assertThat(histogram.upperBounds()).containsExactly(0, 1, 2);
+        assertThat(histogram.cumulativeCounts()).containsExactly(1, 1, 3, 3);
+    }
+}
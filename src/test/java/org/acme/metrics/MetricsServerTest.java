@@ -0,0 +1,85 @@
+package org.acme.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class MetricsServerTest {
+
+    AtomicBoolean healthy = new AtomicBoolean(true);
+    Metrics metrics = new Metrics();
+
+    @Test
+    void shouldServeMetricsInPrometheusFormat() throws Exception {
+        // Given
+        metrics.gauge("test_queue_depth", "Test gauge.", () -> 7);
+        metrics.recordLatency(Stage.RESOLVE, System.nanoTime());
+
+        try (var server = start();
+                var client = HttpClient.newHttpClient()) {
+
+            // When
+            var response =
+                    client.send(get(server, "/metrics"), HttpResponse.BodyHandlers.ofString());
+
+            // Then
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.headers().firstValue("Content-Type"))
+                    .hasValueSatisfying(contentType -> assertThat(contentType).contains("0.0.4"));
+            assertThat(response.body())
+                    .contains("# TYPE bot_updates_consumed_total counter")
+                    .contains("# TYPE test_queue_depth gauge\ntest_queue_depth 7\n")
+                    .contains("bot_stage_latency_seconds_bucket{stage=\"resolve\",le=\"+Inf\"}")
+                    .containsPattern("bot_stage_latency_seconds_count\\{stage=\"resolve\"} [1-9]");
+        }
+    }
+
+    @Test
+    void shouldReportHealth() throws Exception {
+        // Given
+        try (var server = start();
+                var client = HttpClient.newHttpClient()) {
+
+            // When
+            var up = client.send(get(server, "/health"), HttpResponse.BodyHandlers.ofString());
+            healthy.set(false);
+            var down = client.send(get(server, "/health"), HttpResponse.BodyHandlers.ofString());
+
+            // Then
+            assertThat(up.statusCode()).isEqualTo(200);
+            assertThat(down.statusCode()).isEqualTo(503);
+        }
+    }
+
+    @Test
+    void shouldRejectASecondMetricWithTheSameName() {
+        // Given
+        metrics.gauge("test_queue_depth", "Test gauge.", () -> 7);
+
+        // When
+        var thrown =
+                catchThrowable(() -> metrics.counter("test_queue_depth", "Other.", () -> 1));
+
+        // Then
+        assertThat(thrown)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("test_queue_depth");
+        assertThat(metrics.scrape()).contains("test_queue_depth 7\n");
+    }
+
+    MetricsServer start() throws Exception {
+        return MetricsServer.start(new InetSocketAddress("127.0.0.1", 0), metrics, healthy::get);
+    }
+
+    static HttpRequest get(MetricsServer server, String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path))
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package org.acme.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class AffiliateServiceTest {
+
+    AffiliateService affiliateService = new AffiliateService("myaffiliate-20");
+
+    @ParameterizedTest
+    @CsvSource(
+            delimiter = '|',
+            value = {
+                "https://amazon.com/dp/B07XYZ1234 | https://amazon.com/dp/B07XYZ1234?tag=myaffiliate-20",
+                "https://amazon.com/dp/B07XYZ1234?tag=old-20 | https://amazon.com/dp/B07XYZ1234?tag=myaffiliate-20",
+                "https://amazon.com/dp/B07XYZ1234?tag=old-20&th=1 | https://amazon.com/dp/B07XYZ1234?th=1&tag=myaffiliate-20",
+                "https://amazon.com/dp/B07XYZ1234?ref=a&&tag=old-20 | https://amazon.com/dp/B07XYZ1234?ref=a&tag=myaffiliate-20",
+                "https://amazon.com/dp/B07XYZ1234?x=1#reviews | https://amazon.com/dp/B07XYZ1234?x=1&tag=myaffiliate-20#reviews",
+                "https://amazon.com/dp/B07XYZ1234? | https://amazon.com/dp/B07XYZ1234?tag=myaffiliate-20"
+            })
+    void shouldReplaceExistingTagInSingleScan(String url, String expected) {
+        // When
+        var affiliateUrl = affiliateService.addAffiliateTag(url);
+
+        // Then
+        assertThat(affiliateUrl).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+            delimiter = '|',
+            value = {
+                "https://www.amazon.co.uk/Some-Product/dp/B07XYZ1234?ref=sr_1 | amazon.co.uk | B07XYZ1234 | https://amazon.co.uk/dp/B07XYZ1234?tag=myaffiliate-20",
+                "https://amazon.com/s?k=lipstick | | | https://amazon.com/s?k=lipstick&tag=myaffiliate-20"
+            })
+    void shouldCanonicalizeProductLinks(String url, String domain, String asin, String expected) {
+        // Given
+        var canonicalService = new AffiliateService("myaffiliate-20", true);
+
+        // When
+        var affiliateUrl = canonicalService.addAffiliateTag(url, domain, asin);
+
+        // Then
+        assertThat(affiliateUrl).isEqualTo(expected);
+    }
+}
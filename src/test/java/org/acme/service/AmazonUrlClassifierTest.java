@@ -0,0 +1,99 @@
+package org.acme.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.regex.Pattern;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import org.acme.model.LinkType;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class AmazonUrlClassifierTest {
+
+    // The regular expressions the classifier replaces, kept as the reference behaviour
+    static final Pattern AMAZON_PATTERN =
+            Pattern.compile(
+                    "https?://(?:www\\.)?(amazon\\.[a-z.]{2,6}|a\\.[a-z.]{2,6}).*?(?:/dp/|/gp/product/)([A-Z0-9]{10}).*",
+                    Pattern.CASE_INSENSITIVE);
+    static final Pattern AMAZON_SHORT_PATTERN =
+            Pattern.compile("https?://(a|amzn)\\.(co|to)/.*", Pattern.CASE_INSENSITIVE);
+
+    static final String[] FRAGMENTS = {
+        "http://", "https://", "HTTPS://", "www.", "WWW.", "amazon.", "AMAZON.", "a.", "amzn.",
+        "co", "to", "com", "co.uk", "com.mx", "de", "x", "/", "/dp/", "/DP/", "/gp/product/",
+        "/GP/Product/", "B07XYZ1234", "b07xyz12", "1234567890", "?tag=a", "&", "\n", ".", "-",
+        "a.co", "evil.com", "/d/abc", "amazon.com.br.evil", "ſ", " "
+    };
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "https://amazon.com/dp/B07XYZ1234",
+                "https://www.amazon.co.uk/gp/product/B07DEF5678?ref=abc",
+                "http://AMAZON.DE/Some-Product-Name/dp/b07xyz1234/ref=sr_1_1",
+                "https://www.amazon.com.mx/-/es/dp/B0ABCDEFGH",
+                "https://amazon.com/s?k=lipstick",
+                "https://a.co/d/abcdefg",
+                "https://amzn.to/3xYzAbC",
+                "https://a.co/dp/B07XYZ1234",
+                "https://amzn.eu/d/abc",
+                "https://smile.amazon.com/dp/B07XYZ1234",
+                "https://google.com",
+                "https://github.com",
+                "https://banana.com/page",
+                "https://example.com/?q=amazon.com",
+                "https://www.amazon.com/dp/B07XYZ123",
+                "ftp://amazon.com/dp/B07XYZ1234",
+                ""
+            })
+    void shouldMatchRegularExpressionsOnCorpus(String url) {
+        assertMatchesRegularExpressions(url);
+    }
+
+    @Property(tries = 5000)
+    void shouldMatchRegularExpressionsOnGeneratedUrls(@ForAll("urls") String url) {
+        assertMatchesRegularExpressions(url);
+    }
+
+    @Provide
+    Arbitrary<String> urls() {
+        return Arbitraries.of(FRAGMENTS)
+                .list()
+                .ofMinSize(1)
+                .ofMaxSize(9)
+                .map(fragments -> String.join("", fragments));
+    }
+
+    private static void assertMatchesRegularExpressions(String url) {
+        var matcher = AMAZON_PATTERN.matcher(url);
+        var productUrl = matcher.matches();
+
+        var expectedType =
+                AMAZON_SHORT_PATTERN.matcher(url).matches()
+                        ? LinkType.AMAZON_SHORT
+                        : productUrl
+                                        || url.toLowerCase().contains("amazon.")
+                                        || url.toLowerCase().contains("a.co")
+                                ? LinkType.AMAZON_STANDARD
+                                : LinkType.NON_AMAZON;
+
+        assertThat(AmazonUrlClassifier.classify(url)).isEqualTo(expectedType);
+        assertThat(AmazonUrlClassifier.isProductUrl(url)).isEqualTo(productUrl);
+
+        var amazonUrl = AmazonUrlClassifier.parse(url);
+        if (expectedType == LinkType.NON_AMAZON) {
+            assertThat(amazonUrl).isNull();
+            return;
+        }
+        assertThat(amazonUrl.type()).isEqualTo(expectedType);
+        assertThat(amazonUrl.isProduct()).isEqualTo(productUrl);
+        if (productUrl) {
+            assertThat(amazonUrl.domain()).isEqualTo(matcher.group(1));
+            assertThat(amazonUrl.asin()).isEqualTo(matcher.group(2));
+        }
+    }
+}
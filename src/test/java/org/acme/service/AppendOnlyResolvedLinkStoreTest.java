@@ -0,0 +1,144 @@
+package org.acme.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.acme.model.LinkType;
+import org.acme.model.ResolvedLink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AppendOnlyResolvedLinkStoreTest {
+
+    static final ResolvedLink LINK =
+            new ResolvedLink(
+                    "https://a.co/d/abc",
+                    "https://www.amazon.com/dp/B07XYZ1234?th=1",
+                    "amazon.com",
+                    "B07XYZ1234",
+                    1_700_000_000_000L);
+
+    @TempDir Path directory;
+
+    static ResolvedLink link(String shortUrl) {
+        return new ResolvedLink(shortUrl, LINK.finalUrl(), "amazon.com", "B07XYZ1234", 1);
+    }
+
+    AppendOnlyResolvedLinkStore open() {
+        var store = AppendOnlyResolvedLinkStore.open(directory.resolve("data/links.tsv"));
+        store.loaded().join();
+        return store;
+    }
+
+    @Test
+    void shouldRememberResolutionsAcrossRestarts() {
+        // Given
+        try (var store = open()) {
+            store.save(LINK);
+        }
+
+        // When
+        try (var store = open()) {
+
+            // Then
+            assertThat(store.find(LINK.shortUrl())).isEqualTo(LINK);
+            assertThat(store.find("https://a.co/d/other")).isNull();
+        }
+    }
+
+    @Test
+    void shouldSkipTornLinesAndKeepAppending() throws Exception {
+        // Given
+        try (var store = open()) {
+            store.save(LINK);
+        }
+        Files.writeString(
+                directory.resolve("data/links.tsv"),
+                "1700000000001\thttps://a.co/d/torn",
+                StandardOpenOption.APPEND);
+        var other =
+                new ResolvedLink(
+                        "https://a.co/d/xyz", LINK.finalUrl(), "amazon.com", "B07XYZ1234", 1);
+
+        // When
+        try (var store = open()) {
+            store.save(other);
+        }
+
+        // Then
+        try (var store = open()) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.find("https://a.co/d/torn")).isNull();
+            assertThat(store.find(other.shortUrl())).isEqualTo(other);
+        }
+    }
+
+    @Test
+    void shouldKeepOnlyTheMostRecentlyUsedLinks() {
+        // Given
+        var store = AppendOnlyResolvedLinkStore.open(directory.resolve("links.tsv"), 2);
+        store.loaded().join();
+        try (store) {
+            store.save(LINK);
+            store.save(link("https://a.co/d/2"));
+            store.find(LINK.shortUrl());
+
+            // When
+            store.save(link("https://a.co/d/3"));
+
+            // Then
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.find(LINK.shortUrl())).isEqualTo(LINK);
+            assertThat(store.find("https://a.co/d/2")).isNull();
+        }
+    }
+
+    @Test
+    void shouldCompactOnceSavesOutgrowTheLinks() throws Exception {
+        // Given
+        var file = directory.resolve("data/links.tsv");
+
+        // When
+        try (var store = open()) {
+            for (int i = 0; i < 3_000; i++) {
+                store.save(link("https://a.co/d/" + i % 10));
+            }
+        }
+
+        // Then
+        assertThat(Files.readAllLines(file)).hasSizeLessThan(3_000);
+        try (var store = open()) {
+            assertThat(store.size()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void shouldNotResolveStoredShortLinksAgain() {
+        // Given
+        var resolutions = new AtomicInteger();
+        try (var store = open()) {
+            store.save(LINK);
+            var amazonLinkService =
+                    new AmazonLinkService(
+                            url -> {
+                                resolutions.incrementAndGet();
+                                return url;
+                            },
+                            (url, domain, asin) -> "https://" + domain + "/dp/" + asin + "?tag=t",
+                            store);
+
+            // When
+            var processed = amazonLinkService.processAmazonUrl(LINK.shortUrl());
+
+            // Then
+            assertThat(resolutions).hasValue(0);
+            assertThat(processed.processed()).isTrue();
+            assertThat(processed.type()).isEqualTo(LinkType.AMAZON_SHORT);
+            assertThat(processed.affiliateUrl())
+                    .isEqualTo("https://amazon.com/dp/B07XYZ1234?tag=t");
+        }
+    }
+}
@@ -136,4 +136,19 @@ class LinkProcessorTest {
         assertThat(results.getFirst().asin()).isEqualTo("B07ABC1234");
         assertThat(results.get(1).asin()).isEqualTo("B07DEF5678");
     }
+
+    @Test
+    void shouldProcessEachProductOnceWhenRepeatedInMessage() {
+        // Given
+        var message =
+                "https://amazon.com/dp/B07ABC1234 again https://amazon.com/dp/B07ABC1234 and"
+                        + " https://www.amazon.com/Some-Name/dp/B07ABC1234?ref=x";
+
+        // When
+        var results = linkProcessor.processMessage(message);
+
+        // Then
+        assertThat(results).hasSize(1);
+        assertThat(results.getFirst().originalUrl()).isEqualTo("https://amazon.com/dp/B07ABC1234");
+    }
 }
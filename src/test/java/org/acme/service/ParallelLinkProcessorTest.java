@@ -0,0 +1,149 @@
+package org.acme.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.acme.model.LinkType;
+import org.acme.model.ProcessedLink;
+import org.junit.jupiter.api.Test;
+
+class ParallelLinkProcessorTest {
+
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+
+    @Test
+    void shouldKeepInputOrderAndLimitConcurrency() {
+        // Given
+        var linkProcessor =
+                new LinkProcessor(
+                        url -> url.contains("amazon"),
+                        url -> null,
+                        url ->
+                                CompletableFuture.supplyAsync(
+                                        () -> {
+                                            maxRunning.accumulateAndGet(
+                                                    running.incrementAndGet(), Math::max);
+                                            // Later links finish first
+                                            sleep(url.endsWith("1") ? 60 : 10);
+                                            running.decrementAndGet();
+                                            return success(url);
+                                        }));
+        var parallel = new ParallelLinkProcessor(linkProcessor, 2, Duration.ofSeconds(5));
+        var message =
+                "https://amazon.com/dp/B000000001 https://google.com"
+                        + " https://amazon.com/dp/B000000002 https://amazon.com/dp/B000000003";
+
+        // When
+        var results = parallel.processMessage(message);
+
+        // Then
+        assertThat(results)
+                .extracting(ProcessedLink::originalUrl)
+                .containsExactly(
+                        "https://amazon.com/dp/B000000001",
+                        "https://amazon.com/dp/B000000002",
+                        "https://amazon.com/dp/B000000003");
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void shouldReportLinksNotProcessedInTimeAsFailedInTheirPlace() {
+        // Given
+        var stuck = new CompletableFuture<ProcessedLink>();
+        var linkProcessor =
+                new LinkProcessor(
+                        url -> true,
+                        url -> null,
+                        url ->
+                                url.endsWith("2")
+                                        ? stuck
+                                        : CompletableFuture.completedFuture(success(url)));
+        var parallel = new ParallelLinkProcessor(linkProcessor, 4, Duration.ofMillis(50));
+
+        // When
+        var results =
+                parallel.processMessage(
+                        "https://amazon.com/dp/B000000001 https://amazon.com/dp/B000000002"
+                                + " https://amazon.com/dp/B000000003");
+
+        // Then
+        assertThat(results)
+                .extracting(ProcessedLink::originalUrl, ProcessedLink::processed)
+                .containsExactly(
+                        tuple("https://amazon.com/dp/B000000001", true),
+                        tuple("https://amazon.com/dp/B000000002", false),
+                        tuple("https://amazon.com/dp/B000000003", true));
+        assertThat(stuck).isCancelled();
+    }
+
+    @Test
+    void shouldReportLinksThatFailedLikeTheSequentialProcessor() {
+        // Given
+        var linkProcessor =
+                new LinkProcessor(
+                        url -> true,
+                        url -> null,
+                        url ->
+                                url.endsWith("1")
+                                        ? CompletableFuture.failedFuture(
+                                                new IllegalStateException("boom"))
+                                        : CompletableFuture.completedFuture(success(url)));
+        var parallel = new ParallelLinkProcessor(linkProcessor, 4, Duration.ofSeconds(1));
+
+        // When
+        var results =
+                parallel.processMessage(
+                        "https://amazon.com/dp/B000000001 https://amazon.com/dp/B000000002");
+
+        // Then
+        assertThat(results)
+                .containsExactly(
+                        ProcessedLink.failed(
+                                "https://amazon.com/dp/B000000001", LinkType.AMAZON_STANDARD),
+                        success("https://amazon.com/dp/B000000002"));
+    }
+
+    @Test
+    void shouldCancelTheResolutionOfAShortLinkOnTimeout() {
+        // Given
+        var resolution = new CompletableFuture<String>();
+        var amazonLinkService =
+                new AmazonLinkService(
+                        url -> resolution.join(),
+                        (url, domain, asin) -> url,
+                        url -> resolution,
+                        ResolvedLinkStore.NONE);
+        var linkProcessor =
+                new LinkProcessor(
+                        amazonLinkService::isAmazonUrl,
+                        amazonLinkService::processAmazonUrl,
+                        amazonLinkService::processAmazonUrlAsync);
+        var parallel = new ParallelLinkProcessor(linkProcessor, 4, Duration.ofMillis(50));
+
+        // When
+        var results = parallel.processMessage("https://a.co/d/abc");
+
+        // Then
+        assertThat(results)
+                .containsExactly(ProcessedLink.failed("https://a.co/d/abc", LinkType.AMAZON_SHORT));
+        assertThat(resolution).isCancelled();
+    }
+
+    private static ProcessedLink success(String url) {
+        var asin = url.substring(url.length() - 10);
+        return ProcessedLink.success(
+                url, url, asin, "amazon.com", LinkType.AMAZON_STANDARD, url + "?tag=test-20");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.acme.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.acme.model.LinkType;
+import org.acme.model.ProcessedLink;
+import org.junit.jupiter.api.Test;
+
+class RecentLinksTest {
+
+    static final ProcessedLink ANSWER =
+            ProcessedLink.success(
+                    "https://a.co/d/abc",
+                    "https://amazon.com/dp/B07XYZ1234",
+                    "B07XYZ1234",
+                    "amazon.com",
+                    LinkType.AMAZON_SHORT,
+                    "https://amazon.com/dp/B07XYZ1234?tag=test-20");
+
+    AtomicLong clock = new AtomicLong();
+    RecentLinks recentLinks = new RecentLinks(3, Duration.ofMinutes(10), clock::get);
+
+    @Test
+    void shouldAnswerLinkAnsweredInSameChatWithinWindowFromMemory() {
+        // Given
+        recentLinks.answer(1, "amazon.com/B07XYZ1234", ANSWER);
+
+        // When
+        var again = recentLinks.answer(1, "amazon.com/B07XYZ1234", ANSWER);
+        var otherChat = recentLinks.answer(2, "amazon.com/B07XYZ1234", ANSWER);
+
+        // Then
+        assertThat(again).isFalse();
+        assertThat(otherChat).isTrue();
+        assertThat(recentLinks.recentAnswer(1, "amazon.com/B07XYZ1234")).isEqualTo(ANSWER);
+        assertThat(recentLinks.recentAnswer(3, "amazon.com/B07XYZ1234")).isNull();
+        assertThat(recentLinks.suppressed()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAnswerAgainOnceWindowHasPassed() {
+        // Given
+        recentLinks.answer(1, "https://a.co/d/abc", ANSWER);
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+        recentLinks.answer(1, "https://a.co/d/abc", ANSWER); // A re-post does not extend it
+
+        // When
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+
+        // Then
+        assertThat(recentLinks.recentAnswer(1, "https://a.co/d/abc")).isNull();
+        assertThat(recentLinks.answer(1, "https://a.co/d/abc", ANSWER)).isTrue();
+    }
+
+    @Test
+    void shouldForgetOldestAnswerWhenFull() {
+        // Given
+        for (var link : new String[] {"a", "b", "c", "d"}) {
+            recentLinks.answer(1, link, ANSWER);
+        }
+
+        // Then
+        assertThat(recentLinks.size()).isEqualTo(3);
+        assertThat(recentLinks.recentAnswer(1, "a")).isNull();
+        assertThat(recentLinks.recentAnswer(1, "d")).isEqualTo(ANSWER);
+    }
+
+    @Test
+    void shouldAlwaysProcessWithoutWindow() {
+        // Given
+        RecentLinks.NONE.answer(1, "https://a.co/d/abc", ANSWER);
+
+        // When
+        var recentAnswer = RecentLinks.NONE.recentAnswer(1, "https://a.co/d/abc");
+
+        // Then
+        assertThat(recentAnswer).isNull();
+        assertThat(RecentLinks.NONE.size()).isZero();
+    }
+}
@@ -0,0 +1,58 @@
+package org.acme.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ResponseBatcherTest {
+
+    ResponseBatcher responseBatcher = new ResponseBatcher(20);
+
+    @Test
+    void shouldPackResponsesInOrderWithinLimit() {
+        // Given
+        var responses = List.of("aaaa", "bbbb", "cccc", "dddddddddd", "e");
+
+        // When
+        var messages = responseBatcher.batch(responses);
+
+        // Then
+        assertThat(messages).containsExactly("aaaa\nbbbb\ncccc", "dddddddddd\ne");
+    }
+
+    @Test
+    void shouldSplitOversizedResponseAtWhitespace() {
+        // Given
+        var responses = List.of("word1 word2 word3 word4 word5 w6");
+
+        // When
+        var messages = responseBatcher.batch(responses);
+
+        // Then
+        assertThat(messages).containsExactly("word1 word2 word3", "word4 word5 w6");
+        assertThat(messages)
+                .allSatisfy(message -> assertThat(message).hasSizeLessThanOrEqualTo(20));
+    }
+
+    @Test
+    void shouldUseTelegramLimitByDefault() {
+        // Given
+        var response = "💰 https://amazon.com/dp/B07XYZ1234?tag=myaffiliate-20";
+        var responses = Collections.nCopies(100, response);
+
+        // When
+        var messages = new ResponseBatcher().batch(responses);
+
+        // Then
+        assertThat(messages).hasSize(2);
+        assertThat(messages)
+                .allSatisfy(
+                        message ->
+                                assertThat(message)
+                                        .hasSizeLessThanOrEqualTo(
+                                                ResponseBatcher.TELEGRAM_MAX_MESSAGE_LENGTH));
+        assertThat(String.join("\n", messages)).isEqualTo(String.join("\n", responses));
+    }
+}
@@ -0,0 +1,82 @@
+package org.acme.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class UrlScannerTest {
+
+    // The regular expression the scanner replaces, kept as the reference behaviour
+    static final Pattern URL_PATTERN =
+            Pattern.compile("https?://[\\w\\-._~:/?#\\[\\]@!$&'()*+,;=%]+");
+
+    static final String[] FRAGMENTS = {
+        "http://", "https://", "HTTPS://", "http", "s", "://", ":/", "a.co/d/abc", "amzn.to",
+        "/dp/B07XYZ1234", "?tag=a&b=c", "(", ")", "[", "]", "'", ",", " ", "\n", "é", "💰", "<",
+        ">", "\"", "%20", "~", "x"
+    };
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "Check out this product: https://amazon.com/dp/B07XYZ1234",
+                "Two links https://a.co/d/abc and http://amzn.to/xyz, both short",
+                "Glued:https://a.co/d/abchttps://amzn.to/xyz",
+                "No scheme amzn.to/xyz nor separator",
+                "Just a scheme https:// and nothing after",
+                "Uppercase HTTPS://AMAZON.COM/dp/B07XYZ1234 is not matched",
+                "ftp://amazon.com/dp/B07XYZ1234",
+                "(https://amazon.com/dp/B07XYZ1234) in parentheses",
+                "Ünïcode after https://amazon.de/dp/B07XYZ1234é",
+                ""
+            })
+    void shouldMatchRegularExpressionOnCorpus(String text) {
+        assertMatchesRegularExpression(text);
+    }
+
+    @Property(tries = 5000)
+    void shouldMatchRegularExpressionOnGeneratedText(@ForAll("texts") String text) {
+        assertMatchesRegularExpression(text);
+    }
+
+    @Provide
+    Arbitrary<String> texts() {
+        return Arbitraries.of(FRAGMENTS)
+                .list()
+                .ofMinSize(1)
+                .ofMaxSize(12)
+                .map(fragments -> String.join("", fragments));
+    }
+
+    @Test
+    void shouldReturnSharedEmptyListForTextWithoutUrls() {
+        // Given
+        var text = "A long forwarded message without any link. ".repeat(1_000);
+
+        // When
+        var urls = UrlScanner.urls(text);
+
+        // Then
+        assertThat(urls).isEmpty();
+        assertThat(urls).isSameAs(UrlScanner.urls("other text"));
+    }
+
+    private static void assertMatchesRegularExpression(String text) {
+        var expected = new ArrayList<String>();
+        var matcher = URL_PATTERN.matcher(text);
+        while (matcher.find()) {
+            expected.add(matcher.group());
+        }
+
+        assertThat(UrlScanner.urls(text)).containsExactlyElementsOf(expected);
+    }
+}
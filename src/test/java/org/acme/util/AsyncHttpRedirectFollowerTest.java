@@ -0,0 +1,93 @@
+package org.acme.util;
+
+import static org.acme.util.HttpRedirectFollowerTest.redirect;
+import static org.acme.util.HttpRedirectFollowerTest.response;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class AsyncHttpRedirectFollowerTest {
+
+    @Test
+    void shouldChainHopsUntilProductUrl() throws Exception {
+        // Given
+        var follower =
+                new AsyncHttpRedirectFollower(
+                        request ->
+                                CompletableFuture.completedFuture(
+                                        switch (request.uri().toString()) {
+                                            case "https://a.co/d/abc" ->
+                                                    redirect("https://amzn.to/xyz");
+                                            case "https://amzn.to/xyz" ->
+                                                    redirect("https://amazon.com/dp/B07XYZ1234");
+                                            default -> response(200, Map.of());
+                                        }),
+                        HttpRedirectFollower.Mode.HEAD,
+                        url -> url.contains("/dp/"),
+                        Duration.ofSeconds(1));
+
+        // When
+        var finalUrl = follower.followRedirects("https://a.co/d/abc").get();
+
+        // Then
+        assertThat(finalUrl).isEqualTo("https://amazon.com/dp/B07XYZ1234");
+    }
+
+    @Test
+    void shouldReturnOriginalUrlWhenDeadlineExpires() throws Exception {
+        // Given
+        var pendingHop = new CompletableFuture<HttpResponse<Void>>();
+        var follower =
+                new AsyncHttpRedirectFollower(
+                        request -> pendingHop,
+                        HttpRedirectFollower.Mode.HEAD,
+                        url -> false,
+                        Duration.ofMillis(50));
+
+        // When
+        var finalUrl = follower.followRedirects("https://a.co/d/abc").get();
+
+        // Then
+        assertThat(finalUrl).isEqualTo("https://a.co/d/abc");
+        assertThat(pendingHop).isCancelled();
+    }
+
+    @Test
+    void shouldCancelHopInFlightWhenCancelled() {
+        // Given
+        var pendingHop = new CompletableFuture<HttpResponse<Void>>();
+        var follower =
+                new AsyncHttpRedirectFollower(
+                        request -> pendingHop,
+                        HttpRedirectFollower.Mode.HEAD,
+                        url -> false,
+                        Duration.ofSeconds(10));
+
+        // When
+        follower.followRedirects("https://a.co/d/abc").cancel(true);
+
+        // Then
+        assertThat(pendingHop).isCancelled();
+    }
+
+    @Test
+    void shouldReturnOriginalUrlWhenRequestFails() throws Exception {
+        // Given
+        var follower =
+                new AsyncHttpRedirectFollower(
+                        request -> CompletableFuture.failedFuture(new IllegalStateException()),
+                        HttpRedirectFollower.Mode.GET,
+                        url -> false,
+                        Duration.ofSeconds(1));
+
+        // When
+        var finalUrl = follower.followRedirects("https://a.co/d/abc").get();
+
+        // Then
+        assertThat(finalUrl).isEqualTo("https://a.co/d/abc");
+    }
+}
@@ -0,0 +1,116 @@
+package org.acme.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class CachingRedirectFollowerTest {
+
+    AtomicLong clock = new AtomicLong();
+    AtomicInteger calls = new AtomicInteger();
+
+    CachingRedirectFollower cache(Function<String, String> follower, int maxEntries) {
+        return new CachingRedirectFollower(
+                url -> {
+                    calls.incrementAndGet();
+                    return CompletableFuture.completedFuture(follower.apply(url));
+                },
+                url -> url.contains("/dp/"),
+                maxEntries,
+                Duration.ofMinutes(10),
+                Duration.ofSeconds(30),
+                clock::get);
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        // Given
+        var cache = cache(url -> "https://amazon.com/dp/B07XYZ1234", 10);
+
+        // When
+        var first = cache.followRedirects("https://a.co/d/abc").join();
+        var second = cache.followRedirects("https://a.co/d/abc").join();
+
+        // Then
+        assertThat(first).isEqualTo("https://amazon.com/dp/B07XYZ1234");
+        assertThat(second).isEqualTo(first);
+        assertThat(calls).hasValue(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldExpireFailuresBeforeSuccesses() {
+        // Given
+        var cache = cache(url -> url.endsWith("ok") ? "https://amazon.com/dp/B07XYZ1234" : url, 10);
+        cache.followRedirects("https://a.co/d/ok").join();
+        cache.followRedirects("https://a.co/d/ko").join();
+
+        // When
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        cache.followRedirects("https://a.co/d/ok").join();
+        cache.followRedirects("https://a.co/d/ko").join();
+
+        // Then
+        assertThat(calls).hasValue(3);
+        assertThat(cache.peek("https://a.co/d/ok")).isNotNull();
+    }
+
+    @Test
+    void shouldExpireAResolutionStoppedMidChainLikeAFailure() {
+        // Given the second hop was throttled, the follower stopped at the intermediate URL
+        var cache = cache(url -> "https://amzn.to/xyz", 10);
+        cache.followRedirects("https://a.co/d/abc").join();
+
+        // When
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        var retried = cache.followRedirects("https://a.co/d/abc").join();
+
+        // Then
+        assertThat(retried).isEqualTo("https://amzn.to/xyz");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntry() {
+        // Given
+        var cache = cache(url -> url + "/resolved", 2);
+        cache.followRedirects("https://a.co/d/1").join();
+        cache.followRedirects("https://a.co/d/2").join();
+        cache.followRedirects("https://a.co/d/1").join();
+
+        // When
+        cache.followRedirects("https://a.co/d/3").join();
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictions()).isEqualTo(1);
+        assertThat(cache.peek("https://a.co/d/2")).isNull();
+        assertThat(cache.peek("https://a.co/d/1")).isEqualTo("https://a.co/d/1/resolved");
+    }
+
+    @Test
+    void shouldLetCallersCancelAResolutionInFlight() {
+        // Given
+        var resolution = new CompletableFuture<String>();
+        var cache =
+                new CachingRedirectFollower(
+                        url -> resolution,
+                        url -> url.contains("/dp/"),
+                        10,
+                        Duration.ofMinutes(10),
+                        Duration.ofSeconds(30));
+
+        // When
+        cache.followRedirects("https://a.co/d/abc").cancel(true);
+
+        // Then
+        assertThat(resolution).isCancelled();
+        assertThat(cache.peek("https://a.co/d/abc")).isNull();
+    }
+}
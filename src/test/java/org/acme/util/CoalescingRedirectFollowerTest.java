@@ -0,0 +1,91 @@
+package org.acme.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CoalescingRedirectFollowerTest {
+
+    CompletableFuture<String> resolution = new CompletableFuture<>();
+    AtomicInteger calls = new AtomicInteger();
+
+    CoalescingRedirectFollower follower(Duration maxWait) {
+        return new CoalescingRedirectFollower(
+                url -> {
+                    calls.incrementAndGet();
+                    return resolution;
+                },
+                maxWait);
+    }
+
+    @Test
+    void shouldShareOneResolutionBetweenConcurrentCallers() {
+        // Given
+        var follower = follower(Duration.ofSeconds(5));
+
+        // When
+        var leader = follower.followRedirects("https://a.co/d/abc");
+        var waiter = follower.followRedirects("https://a.co/d/abc");
+        var inFlightBefore = follower.inFlight();
+        resolution.complete("https://amazon.com/dp/B07XYZ1234");
+
+        // Then
+        assertThat(inFlightBefore).isEqualTo(1);
+        assertThat(leader).isCompletedWithValue("https://amazon.com/dp/B07XYZ1234");
+        assertThat(waiter).isCompletedWithValue("https://amazon.com/dp/B07XYZ1234");
+        assertThat(calls).hasValue(1);
+        assertThat(follower.coalesced()).isEqualTo(1);
+        assertThat(follower.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldReturnOriginalUrlToAllCallersWhenResolutionFails() {
+        // Given
+        var follower = follower(Duration.ofSeconds(5));
+        var leader = follower.followRedirects("https://a.co/d/abc");
+        var waiter = follower.followRedirects("https://a.co/d/abc");
+
+        // When
+        resolution.completeExceptionally(new IllegalStateException("boom"));
+
+        // Then
+        assertThat(leader).isCompletedWithValue("https://a.co/d/abc");
+        assertThat(waiter).isCompletedWithValue("https://a.co/d/abc");
+        assertThat(follower.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldStopWaitingAfterMaxWait() {
+        // Given
+        var follower = follower(Duration.ofMillis(50));
+        follower.followRedirects("https://a.co/d/abc");
+
+        // When
+        var waiter = follower.followRedirects("https://a.co/d/abc");
+
+        // Then
+        assertThat(waiter).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("https://a.co/d/abc");
+        assertThat(resolution).isNotDone();
+    }
+
+    @Test
+    void shouldOnlyCancelTheResolutionOnceEveryCallerCancelled() {
+        // Given
+        var follower = follower(Duration.ofSeconds(5));
+        var leader = follower.followRedirects("https://a.co/d/abc");
+        var waiter = follower.followRedirects("https://a.co/d/abc");
+
+        // When
+        leader.cancel(true);
+        var cancelledByLeader = resolution.isCancelled();
+        waiter.cancel(true);
+
+        // Then
+        assertThat(cancelledByLeader).isFalse();
+        assertThat(resolution).isCancelled();
+        assertThat(follower.inFlight()).isZero();
+    }
+}
@@ -0,0 +1,220 @@
+package org.acme.util;
+
+import static org.acme.util.HttpRedirectFollowerTest.response;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class HostCircuitBreakerTest {
+
+    private static final HostCircuitBreaker.Settings SETTINGS =
+            new HostCircuitBreaker.Settings(2, 4, Duration.ofSeconds(1), 3, Duration.ofSeconds(30));
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<CompletableFuture<HttpResponse<Void>>> sent = new ArrayList<>();
+
+    private HostCircuitBreaker breaker() {
+        return breaker(SETTINGS);
+    }
+
+    private HostCircuitBreaker breaker(HostCircuitBreaker.Settings settings) {
+        return new HostCircuitBreaker(
+                request -> {
+                    var pending = new CompletableFuture<HttpResponse<Void>>();
+                    sent.add(pending);
+                    return pending;
+                },
+                settings,
+                clock::get);
+    }
+
+    private static CompletableFuture<HttpResponse<Void>> send(
+            HostCircuitBreaker breaker, String url) {
+        return breaker.sendAsync(
+                HttpRedirectFollower.request(url, "HEAD", Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void shouldRejectRequestsOverTheHostLimit() {
+        // Given
+        var breaker = breaker();
+        send(breaker, "https://a.co/d/1");
+        send(breaker, "https://a.co/d/2");
+
+        // When
+        var rejected = send(breaker, "https://a.co/d/3");
+        var otherHost = send(breaker, "https://amzn.to/x");
+
+        // Then
+        assertThat(rejected)
+                .failsWithin(Duration.ZERO)
+                .withThrowableOfType(Exception.class)
+                .withCauseInstanceOf(HostCircuitBreaker.RejectedException.class);
+        assertThat(otherHost).isNotDone();
+        assertThat(sent).hasSize(3);
+        assertThat(breaker.rejectedLimit()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReturnTheDelegateFutureSoCancellationReachesIt() {
+        // Given
+        var breaker = breaker();
+
+        // When
+        send(breaker, "https://a.co/d/1").cancel(true);
+
+        // Then
+        assertThat(sent.getFirst()).isCancelled();
+    }
+
+    @Test
+    void shouldGrowTheLimitOnFastSuccessesAndCutItOnSlowOnes() {
+        // Given
+        var breaker = breaker();
+        for (int i = 0; i < 10; i++) {
+            send(breaker, "https://a.co/d/" + i);
+            sent.getLast().complete(response(301, Map.of()));
+        }
+        assertThat(breaker.limit("a.co")).isEqualTo(4);
+
+        // When
+        send(breaker, "https://a.co/d/slow");
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        sent.getLast().complete(response(301, Map.of()));
+
+        // Then
+        assertThat(breaker.limit("a.co")).isEqualTo(3);
+    }
+
+    @Test
+    void shouldOpenAfterConsecutiveFailuresAndCloseAfterSuccessfulProbe() {
+        // Given
+        var breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            send(breaker, "https://a.co/d/" + i);
+            sent.getLast().complete(response(503, Map.of()));
+        }
+
+        // When
+        var whileOpen = send(breaker, "https://a.co/d/open");
+
+        // Then
+        assertThat(breaker.isOpen("a.co")).isTrue();
+        assertThat(whileOpen.isCompletedExceptionally()).isTrue();
+        assertThat(breaker.rejectedOpen()).isEqualTo(1);
+
+        // When
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        var probe = send(breaker, "https://a.co/d/probe");
+        var duringProbe = send(breaker, "https://a.co/d/other");
+        sent.getLast().complete(response(301, Map.of()));
+
+        // Then
+        assertThat(probe).isCompleted();
+        assertThat(duringProbe.isCompletedExceptionally()).isTrue();
+        assertThat(breaker.isOpen("a.co")).isFalse();
+        assertThat(sent).hasSize(4);
+    }
+
+    @Test
+    void shouldOpenAgainWhenTheProbeFails() {
+        // Given
+        var breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            send(breaker, "https://a.co/d/" + i);
+            sent.getLast().completeExceptionally(new CompletionException("timeout", null));
+        }
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        // When
+        send(breaker, "https://a.co/d/probe");
+        sent.getLast().complete(response(429, Map.of()));
+
+        // Then
+        assertThat(breaker.isOpen("a.co")).isTrue();
+        assertThat(send(breaker, "https://a.co/d/next").isCompletedExceptionally()).isTrue();
+    }
+
+    @Test
+    void shouldNotCountCancelledRequestsAsFailures() {
+        // Given
+        var breaker = breaker();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            send(breaker, "https://a.co/d/" + i).cancel(true);
+        }
+
+        // Then
+        assertThat(breaker.isOpen("a.co")).isFalse();
+        assertThat(breaker.limit("a.co")).isEqualTo(2);
+        assertThat(send(breaker, "https://a.co/d/next")).isNotDone();
+    }
+
+    @Test
+    void shouldCountHopsCancelledByTheFollowersDeadlineAsFailures() throws Exception {
+        // Given a host that never answers, and a slow threshold the deadline never reaches
+        var breaker =
+                new HostCircuitBreaker(
+                        request -> new CompletableFuture<>(),
+                        new HostCircuitBreaker.Settings(
+                                2, 4, Duration.ofMinutes(1), 3, Duration.ofSeconds(30)),
+                        System::nanoTime);
+        var follower =
+                new AsyncHttpRedirectFollower(
+                        breaker::sendAsync,
+                        HttpRedirectFollower.Mode.HEAD,
+                        url -> false,
+                        Duration.ofMillis(50));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            follower.followRedirects("https://a.co/d/" + i).get();
+        }
+
+        // Then
+        assertThat(breaker.isOpen("a.co")).isTrue();
+        assertThat(breaker.limit("a.co")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLetOnlyTheProbeDecideAHalfOpenCircuit() {
+        // Given requests sent before the circuit opened that are still running
+        var breaker =
+                breaker(
+                        new HostCircuitBreaker.Settings(
+                                8, 8, Duration.ofSeconds(1), 3, Duration.ofSeconds(30)));
+        send(breaker, "https://a.co/d/stale-1");
+        var staleSuccess = sent.getLast();
+        send(breaker, "https://a.co/d/stale-2");
+        var staleFailure = sent.getLast();
+        for (int i = 0; i < 3; i++) {
+            send(breaker, "https://a.co/d/" + i);
+            sent.getLast().complete(response(503, Map.of()));
+        }
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        send(breaker, "https://a.co/d/probe");
+        var probe = sent.getLast();
+
+        // When
+        staleSuccess.complete(response(301, Map.of()));
+        staleFailure.complete(response(503, Map.of()));
+        var duringProbe = send(breaker, "https://a.co/d/other");
+        var openBeforeProbe = breaker.isOpen("a.co");
+        probe.complete(response(301, Map.of()));
+
+        // Then
+        assertThat(duringProbe.isCompletedExceptionally()).isTrue();
+        assertThat(openBeforeProbe).isFalse();
+        assertThat(breaker.isOpen("a.co")).isFalse();
+        assertThat(send(breaker, "https://a.co/d/next")).isNotDone();
+    }
+}
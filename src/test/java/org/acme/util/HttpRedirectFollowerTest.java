@@ -0,0 +1,123 @@
+package org.acme.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.net.ssl.SSLSession;
+import org.junit.jupiter.api.Test;
+
+class HttpRedirectFollowerTest {
+
+    List<String> requests = new ArrayList<>();
+
+    @Test
+    void shouldStopAtFirstProductUrlWithoutFetchingIt() {
+        // Given
+        var follower =
+                new HttpRedirectFollower(
+                        request -> {
+                            requests.add(request.method() + " " + request.uri());
+                            return switch (request.uri().toString()) {
+                                case "https://a.co/d/abc" -> redirect("https://amzn.to/xyz");
+                                case "https://amzn.to/xyz" ->
+                                        redirect("https://www.amazon.com/dp/B07XYZ1234?ref=x");
+                                default -> response(200, Map.of());
+                            };
+                        },
+                        HttpRedirectFollower.Mode.HEAD,
+                        url -> url.contains("/dp/"));
+
+        // When
+        var finalUrl = follower.followRedirects("https://a.co/d/abc");
+
+        // Then
+        assertThat(finalUrl).isEqualTo("https://www.amazon.com/dp/B07XYZ1234?ref=x");
+        assertThat(requests).containsExactly("HEAD https://a.co/d/abc", "HEAD https://amzn.to/xyz");
+    }
+
+    @Test
+    void shouldFallBackToGetWhenHeadIsRejected() {
+        // Given
+        var follower =
+                new HttpRedirectFollower(
+                        request -> {
+                            requests.add(request.method() + " " + request.uri());
+                            if (request.method().equals("HEAD")) {
+                                return response(405, Map.of());
+                            }
+                            return request.uri().getPath().startsWith("/d/")
+                                    ? redirect("/dp/B07XYZ1234")
+                                    : response(200, Map.of());
+                        },
+                        HttpRedirectFollower.Mode.HEAD,
+                        url -> false);
+
+        // When
+        var finalUrl = follower.followRedirects("https://a.co/d/abc");
+
+        // Then
+        assertThat(finalUrl).isEqualTo("https://a.co/dp/B07XYZ1234");
+        assertThat(requests)
+                .containsExactly(
+                        "HEAD https://a.co/d/abc",
+                        "GET https://a.co/d/abc",
+                        "HEAD https://a.co/dp/B07XYZ1234",
+                        "GET https://a.co/dp/B07XYZ1234");
+    }
+
+    static HttpResponse<Void> redirect(String location) {
+        return response(301, Map.of("Location", List.of(location)));
+    }
+
+    static HttpResponse<Void> response(int statusCode, Map<String, List<String>> headers) {
+        return new HttpResponse<>() {
+            @Override
+            public int statusCode() {
+                return statusCode;
+            }
+
+            @Override
+            public HttpRequest request() {
+                return null;
+            }
+
+            @Override
+            public Optional<HttpResponse<Void>> previousResponse() {
+                return Optional.empty();
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return HttpHeaders.of(headers, (name, value) -> true);
+            }
+
+            @Override
+            public Void body() {
+                return null;
+            }
+
+            @Override
+            public Optional<SSLSession> sslSession() {
+                return Optional.empty();
+            }
+
+            @Override
+            public URI uri() {
+                return null;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package org.acme.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ResolverTransportTest {
+
+    static ResolverTransport.Settings settings(List<String> warmUpHosts) {
+        return new ResolverTransport.Settings(
+                HttpClient.Version.HTTP_1_1,
+                Duration.ofSeconds(2),
+                Duration.ofSeconds(30),
+                4,
+                null,
+                warmUpHosts);
+    }
+
+    @Test
+    void shouldSendRequestsWithoutFollowingRedirects() throws Exception {
+        // Given
+        var server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(
+                "/d/abc",
+                exchange -> {
+                    exchange.getResponseHeaders().set("Location", "https://www.amazon.com/dp/B0");
+                    exchange.sendResponseHeaders(301, -1);
+                    exchange.close();
+                });
+        server.start();
+
+        try (var transport = new ResolverTransport(settings(List.of()))) {
+            var url = "http://127.0.0.1:" + server.getAddress().getPort() + "/d/abc";
+
+            // When
+            var response =
+                    transport
+                            .sendAsync(
+                                    HttpRedirectFollower.request(
+                                            url, "HEAD", Duration.ofSeconds(2)))
+                            .join();
+
+            // Then
+            assertThat(response.statusCode()).isEqualTo(301);
+            assertThat(response.headers().firstValue("Location"))
+                    .hasValue("https://www.amazon.com/dp/B0");
+            assertThat(transport.handshakes()).isZero(); // Plain HTTP, no TLS session
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void shouldIgnoreWarmUpFailures() {
+        // Given
+        try (var transport = new ResolverTransport(settings(List.of("unreachable.invalid")))) {
+
+            // When
+            var warmUp = transport.warmUp();
+
+            // Then
+            assertThat(warmUp).succeedsWithin(Duration.ofSeconds(10));
+        }
+    }
+
+    @Test
+    void shouldBuildHttpClientOnlyOnFirstRequest() {
+        // Given
+        try (var transport = new ResolverTransport(settings(List.of("unreachable.invalid")))) {
+            var startedBefore = transport.isStarted();
+
+            // When
+            transport.warmUp().join();
+
+            // Then
+            assertThat(startedBefore).isFalse();
+            assertThat(transport.isStarted()).isTrue();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.acme.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+    static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void shouldAllowBurstThenRefillAtRate() {
+        // Given
+        var bucket = new TokenBucket(2, Duration.ofSeconds(1), 2, 0);
+
+        // When
+        bucket.take(0);
+        bucket.take(0);
+
+        // Then
+        assertThat(bucket.nanosUntilAvailable(0)).isEqualTo(SECOND / 2);
+        assertThat(bucket.nanosUntilAvailable(SECOND / 2)).isZero();
+        assertThat(bucket.isFull(SECOND / 2)).isFalse();
+        assertThat(bucket.isFull(SECOND)).isTrue();
+    }
+
+    @Test
+    void shouldNotAccumulateMoreThanBurst() {
+        // Given
+        var bucket = new TokenBucket(20, Duration.ofMinutes(1), 3, 0);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            bucket.take(60 * SECOND);
+        }
+
+        // Then
+        assertThat(bucket.nanosUntilAvailable(60 * SECOND)).isEqualTo(3 * SECOND);
+    }
+}